@@ -0,0 +1,128 @@
+public enum Activation {
+    SIGMOID {
+        @Override
+        public void apply(double[] values, int offset, int length) {
+            MatrixKernels.sigmoid(values, offset, length);
+        }
+
+        @Override
+        public void apply(float[] values, int offset, int length) {
+            MatrixKernels.sigmoid(values, offset, length);
+        }
+
+        @Override
+        double derivative(double output) {
+            return output * (1 - output);
+        }
+    },
+    TANH {
+        @Override
+        public void apply(double[] values, int offset, int length) {
+            MatrixKernels.tanh(values, offset, length);
+        }
+
+        @Override
+        public void apply(float[] values, int offset, int length) {
+            MatrixKernels.tanh(values, offset, length);
+        }
+
+        @Override
+        double derivative(double output) {
+            return 1 - output * output;
+        }
+    },
+    RELU {
+        @Override
+        public void apply(double[] values, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                values[i] = Math.max(0.0, values[i]);
+            }
+        }
+
+        @Override
+        public void apply(float[] values, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                values[i] = Math.max(0.0f, values[i]);
+            }
+        }
+
+        @Override
+        double derivative(double output) {
+            return output > 0 ? 1.0 : 0.0;
+        }
+
+        @Override
+        double initializationLimit(int inputNeurons, int outputNeurons) {
+            return Math.sqrt(6.0 / inputNeurons);
+        }
+    },
+    LINEAR {
+        @Override
+        public void apply(double[] values, int offset, int length) {
+        }
+
+        @Override
+        public void apply(float[] values, int offset, int length) {
+        }
+
+        @Override
+        double derivative(double output) {
+            return 1.0;
+        }
+    },
+    FAST_SIGMOID {
+        @Override
+        public void apply(double[] values, int offset, int length) {
+            MatrixKernels.fastSigmoid(values, offset, length);
+        }
+
+        @Override
+        public void apply(float[] values, int offset, int length) {
+            MatrixKernels.fastSigmoid(values, offset, length);
+        }
+
+        @Override
+        double derivative(double output) {
+            return output * (1 - output);
+        }
+    },
+    LEAKY_RELU {
+        @Override
+        public void apply(double[] values, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                double value = values[i];
+                values[i] = value > 0.0 ? value : LEAKY_SLOPE * value;
+            }
+        }
+
+        @Override
+        public void apply(float[] values, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                float value = values[i];
+                values[i] = value > 0.0f ? value : (float) LEAKY_SLOPE * value;
+            }
+        }
+
+        @Override
+        double derivative(double output) {
+            return output > 0 ? 1.0 : LEAKY_SLOPE;
+        }
+
+        @Override
+        double initializationLimit(int inputNeurons, int outputNeurons) {
+            return Math.sqrt(6.0 / ((1 + LEAKY_SLOPE * LEAKY_SLOPE) * inputNeurons));
+        }
+    };
+
+    private static final double LEAKY_SLOPE = 0.01;
+
+    public abstract void apply(double[] values, int offset, int length);
+
+    public abstract void apply(float[] values, int offset, int length);
+
+    abstract double derivative(double output);
+
+    double initializationLimit(int inputNeurons, int outputNeurons) {
+        return Math.sqrt(6.0 / (inputNeurons + outputNeurons));
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public final class AtomicFiles {
+    private AtomicFiles() {
+    }
+
+    public interface ContentWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    public static void write(String path, ByteBuffer buffer) throws IOException {
+        write(Paths.get(path), buffer);
+    }
+
+    public static void write(Path path, ByteBuffer buffer) throws IOException {
+        write(path, channel -> writeFully(channel, buffer));
+    }
+
+    public static void write(Path path, ContentWriter writer) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class AugmentationCache {
+    private static final int CACHE_MAGIC = 0x41504C4D;
+    private static final int CACHE_VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int WRITE_CHUNK = 1 << 16;
+    private static final double[] PIXEL_VALUES = new double[256];
+
+    static {
+        for (int i = 0; i < PIXEL_VALUES.length; i++) {
+            PIXEL_VALUES[i] = i / 255.0;
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int inputSize;
+    private final int variants;
+    private final long dataOffset;
+    private final Map<Sample, Integer> slots = new IdentityHashMap<>();
+    private Map<Long, Integer> slotIndex;
+    private final ThreadLocal<byte[]> rowBuffers;
+
+    private AugmentationCache(MappedByteBuffer buffer, int inputSize, int variants, int slotCount) {
+        this.buffer = buffer;
+        this.inputSize = inputSize;
+        this.variants = variants;
+        this.dataOffset = HEADER_SIZE + (long) slotCount * Long.BYTES;
+        this.rowBuffers = ThreadLocal.withInitial(() -> new byte[inputSize]);
+    }
+
+    public static AugmentationCache open(Path path, List<Sample> samples, int variants) throws IOException {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("Brak próbek do augmentacji");
+        }
+        if (variants < 1 || variants > 255) {
+            throw new IllegalArgumentException("Liczba wariantów musi mieścić się w zakresie 1-255");
+        }
+
+        int inputSize = samples.get(0).getInput().length;
+        Map<Long, Sample> uniqueSamples = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            uniqueSamples.putIfAbsent(fingerprint(sample), sample);
+        }
+        long parameters = fingerprint(AugmentationEngine.parameters());
+
+        AugmentationCache cache = load(path, inputSize, variants, parameters);
+        if (cache == null || !cache.covers(uniqueSamples.keySet())) {
+            System.out.println("Generowanie pamięci podręcznej augmentacji (" + variants + " wariantów na próbkę)...");
+            cache = build(path, new ArrayList<>(uniqueSamples.entrySet()), inputSize, variants, parameters);
+        } else {
+            System.out.println("Wczytano pamięć podręczną augmentacji z pliku: " + path);
+        }
+
+        for (Sample sample : samples) {
+            cache.slots.put(sample, cache.slotIndex.get(fingerprint(sample)));
+        }
+        cache.slotIndex = null;
+        return cache;
+    }
+
+    public int variants() {
+        return variants;
+    }
+
+    public int slotOf(Sample sample) {
+        Integer slot = slots.get(sample);
+        return slot != null ? slot : -1;
+    }
+
+    public void readVariant(int slot, int variant, double[] output) {
+        byte[] row = rowBuffers.get();
+        buffer.get(Math.toIntExact(dataOffset + ((long) slot * variants + variant) * inputSize), row);
+        for (int i = 0; i < inputSize; i++) {
+            output[i] = PIXEL_VALUES[row[i] & 0xFF];
+        }
+    }
+
+    private boolean covers(Set<Long> fingerprints) {
+        return slotIndex.keySet().containsAll(fingerprints);
+    }
+
+    private static AugmentationCache load(Path path, int inputSize, int variants, long parameters) throws IOException {
+        if (!path.toFile().isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != CACHE_MAGIC || buffer.getInt() != CACHE_VERSION ||
+                buffer.getInt() != inputSize || buffer.getInt() != variants || buffer.getLong() != parameters) {
+                return null;
+            }
+
+            long slotCount = buffer.getLong();
+            long expectedSize = HEADER_SIZE + slotCount * Long.BYTES + slotCount * variants * inputSize;
+            if (slotCount > Integer.MAX_VALUE || expectedSize != channel.size()) {
+                return null;
+            }
+
+            AugmentationCache cache = new AugmentationCache(buffer, inputSize, variants, (int) slotCount);
+            cache.slotIndex = new HashMap<>();
+            for (int slot = 0; slot < slotCount; slot++) {
+                cache.slotIndex.put(buffer.getLong(), slot);
+            }
+            return cache;
+        }
+    }
+
+    private static AugmentationCache build(Path path, List<Map.Entry<Long, Sample>> samples,
+                                           int inputSize, int variants, long parameters) throws IOException {
+        AugmentationEngine engine = new AugmentationEngine((int) Math.sqrt(inputSize));
+        long size = HEADER_SIZE + (long) samples.size() * Long.BYTES + (long) samples.size() * variants * inputSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Pamięć podręczna augmentacji byłaby zbyt duża: " + size + " bajtów");
+        }
+
+        AtomicFiles.write(path, channel -> {
+            ByteBuffer chunk = ByteBuffer.allocate(Math.max(WRITE_CHUNK, inputSize)).order(ByteOrder.LITTLE_ENDIAN);
+            chunk.putInt(CACHE_MAGIC);
+            chunk.putInt(CACHE_VERSION);
+            chunk.putInt(inputSize);
+            chunk.putInt(variants);
+            chunk.putLong(parameters);
+            chunk.putLong(samples.size());
+            for (Map.Entry<Long, Sample> entry : samples) {
+                if (chunk.remaining() < Long.BYTES) {
+                    flush(channel, chunk);
+                }
+                chunk.putLong(entry.getKey());
+            }
+
+            double[] input = new double[inputSize];
+            double[] augmented = new double[inputSize];
+            for (Map.Entry<Long, Sample> entry : samples) {
+                entry.getValue().copyInput(input, 0);
+                for (int variant = 0; variant < variants; variant++) {
+                    engine.augment(input, augmented);
+                    if (chunk.remaining() < inputSize) {
+                        flush(channel, chunk);
+                    }
+                    for (double value : augmented) {
+                        chunk.put((byte) Math.round(value * 255.0));
+                    }
+                }
+            }
+            flush(channel, chunk);
+        });
+
+        AugmentationCache cache = load(path, inputSize, variants, parameters);
+        if (cache == null) {
+            throw new IOException("Nie udało się wczytać wygenerowanej pamięci podręcznej augmentacji: " + path);
+        }
+        return cache;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        AtomicFiles.writeFully(channel, chunk);
+        chunk.clear();
+    }
+
+    private static long fingerprint(Sample sample) {
+        long hash = 0xcbf29ce484222325L;
+        for (double value : sample.getInput()) {
+            hash = (hash ^ Double.doubleToLongBits(value)) * 0x100000001b3L;
+        }
+        for (double value : sample.getTarget()) {
+            hash = (hash ^ Double.doubleToLongBits(value)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long fingerprint(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+public class AugmentationEngine {
+    private static final int ELASTIC_FIELD_SIZE = 7;
+    private static final int ELASTIC_POOL_SIZE = 64;
+    private static final int NOISE_POOL_SIZE = 1 << 16;
+    private static final double NOISE_AMPLITUDE = 0.05;
+    private static final int MAX_SHIFT = 3;
+    private static final double MAX_ANGLE = 0.25;
+    private static final double MIN_SCALE = 0.8;
+    private static final double MAX_SCALE = 1.2;
+    private static final double MIN_ELASTIC_SCALE = 3.0;
+    private static final double MAX_ELASTIC_SCALE = 6.0;
+
+    private final int size;
+    private final double center;
+    private final double[][] elasticFieldsX;
+    private final double[][] elasticFieldsY;
+    private final int paddedSize;
+    private final double[] noise;
+    private final double[] noiseAboveZero;
+    private final double[] noiseBelowOne;
+    private final ThreadLocal<double[]> paddedImages;
+
+    public AugmentationEngine(int size) {
+        this.size = size;
+        this.center = size / 2.0;
+        this.paddedSize = size + 2;
+        this.paddedImages = ThreadLocal.withInitial(() -> new double[paddedSize * paddedSize]);
+        this.elasticFieldsX = new double[ELASTIC_POOL_SIZE][];
+        this.elasticFieldsY = new double[ELASTIC_POOL_SIZE][];
+
+        for (int i = 0; i < ELASTIC_POOL_SIZE; i++) {
+            elasticFieldsX[i] = createElasticField();
+            elasticFieldsY[i] = createElasticField();
+        }
+
+        this.noise = new double[NOISE_POOL_SIZE + size * size];
+        this.noiseAboveZero = new double[noise.length];
+        this.noiseBelowOne = new double[noise.length];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = ThreadLocalRandom.current().nextDouble(-NOISE_AMPLITUDE, NOISE_AMPLITUDE);
+            noiseAboveZero[i] = Math.max(0.0, noise[i]);
+            noiseBelowOne[i] = 1.0 + Math.min(0.0, noise[i]);
+        }
+    }
+
+    public static String parameters() {
+        return "shift=" + MAX_SHIFT + ";angle=" + MAX_ANGLE + ";scale=" + MIN_SCALE + "-" + MAX_SCALE +
+               ";elastic=" + MIN_ELASTIC_SCALE + "-" + MAX_ELASTIC_SCALE + "/" + ELASTIC_FIELD_SIZE +
+               ";noise=" + NOISE_AMPLITUDE;
+    }
+
+    public void augment(double[] input, double[] output) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double m00 = 1.0, m01 = 0.0, m10 = 0.0, m11 = 1.0;
+        double offsetX = 0.0, offsetY = 0.0;
+        double[] fieldX = null;
+        double[] fieldY = null;
+        double elasticScale = 0.0;
+        int erasures = 0;
+
+        int transformCount = random.nextInt(2, 4);
+        for (int t = 0; t < transformCount; t++) {
+            switch (random.nextInt(5)) {
+                case 0: {
+                    int shiftX = random.nextInt(-MAX_SHIFT, MAX_SHIFT + 1);
+                    int shiftY = random.nextInt(-MAX_SHIFT, MAX_SHIFT + 1);
+                    offsetX -= m00 * shiftX + m01 * shiftY;
+                    offsetY -= m10 * shiftX + m11 * shiftY;
+                    break;
+                }
+                case 1:
+                    erasures++;
+                    break;
+                case 2: {
+                    double angle = random.nextDouble(-MAX_ANGLE, MAX_ANGLE);
+                    double cos = Math.cos(angle);
+                    double sin = Math.sin(angle);
+                    double r00 = m00 * cos + m01 * sin, r01 = m01 * cos - m00 * sin;
+                    double r10 = m10 * cos + m11 * sin, r11 = m11 * cos - m10 * sin;
+                    m00 = r00; m01 = r01; m10 = r10; m11 = r11;
+                    break;
+                }
+                case 3: {
+                    double inverseScale = 1.0 / random.nextDouble(MIN_SCALE, MAX_SCALE);
+                    m00 *= inverseScale; m01 *= inverseScale;
+                    m10 *= inverseScale; m11 *= inverseScale;
+                    break;
+                }
+                case 4: {
+                    int field = random.nextInt(ELASTIC_POOL_SIZE);
+                    fieldX = elasticFieldsX[field];
+                    fieldY = elasticFieldsY[field];
+                    elasticScale = random.nextDouble(MIN_ELASTIC_SCALE, MAX_ELASTIC_SCALE);
+                    break;
+                }
+            }
+        }
+
+        double[] padded = paddedImages.get();
+        for (int y = 0; y < size; y++) {
+            System.arraycopy(input, y * size, padded, (y + 1) * paddedSize + 1, size);
+        }
+
+        for (int y = 0; y < size; y++) {
+            double py = y - center;
+            double rowX = m01 * py + center + offsetX - m00 * center;
+            double rowY = m11 * py + center + offsetY - m10 * center;
+
+            for (int x = 0; x < size; x++) {
+                int index = y * size + x;
+                double sourceX = rowX + m00 * x;
+                double sourceY = rowY + m10 * x;
+                if (fieldX != null) {
+                    double dx = elasticScale * fieldX[index];
+                    double dy = elasticScale * fieldY[index];
+                    sourceX += m00 * dx + m01 * dy;
+                    sourceY += m10 * dx + m11 * dy;
+                }
+                output[index] = sampleBilinear(padded, sourceX, sourceY);
+            }
+        }
+
+        for (int e = 0; e < erasures; e++) {
+            erasePatches(output, random);
+        }
+
+        int noiseOffset = random.nextInt(NOISE_POOL_SIZE);
+        for (int i = 0; i < output.length; i++) {
+            double value = output[i];
+            if (value == 0.0) {
+                output[i] = noiseAboveZero[noiseOffset + i];
+            } else if (value == 1.0) {
+                output[i] = noiseBelowOne[noiseOffset + i];
+            } else {
+                value += noise[noiseOffset + i];
+                output[i] = value < 0.0 ? 0.0 : (value > 1.0 ? 1.0 : value);
+            }
+        }
+    }
+
+    private double sampleBilinear(double[] padded, double x, double y) {
+        if (!(x > -1.0 && y > -1.0 && x < size && y < size)) {
+            return 0.0;
+        }
+
+        int column = (int)(x + 1.0);
+        int row = (int)(y + 1.0);
+        double xWeight = x + 1.0 - column;
+        double yWeight = y + 1.0 - row;
+        int index = row * paddedSize + column;
+
+        return (padded[index] * (1 - xWeight) + padded[index + 1] * xWeight) * (1 - yWeight) +
+               (padded[index + paddedSize] * (1 - xWeight) + padded[index + paddedSize + 1] * xWeight) * yWeight;
+    }
+
+    private void erasePatches(double[] image, ThreadLocalRandom random) {
+        int numErasures = random.nextInt(1, 4);
+
+        for (int e = 0; e < numErasures; e++) {
+            int eraseX = random.nextInt(size);
+            int eraseY = random.nextInt(size);
+            int eraseSize = random.nextInt(1, 4);
+            double value = random.nextBoolean() ? 1.0 : 0.0;
+
+            for (int y = Math.max(0, eraseY - eraseSize); y <= Math.min(size - 1, eraseY + eraseSize); y++) {
+                for (int x = Math.max(0, eraseX - eraseSize); x <= Math.min(size - 1, eraseX + eraseSize); x++) {
+                    image[y * size + x] = value;
+                }
+            }
+        }
+    }
+
+    private double[] createElasticField() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double[][] smallField = new double[ELASTIC_FIELD_SIZE][ELASTIC_FIELD_SIZE];
+        for (int i = 0; i < ELASTIC_FIELD_SIZE; i++) {
+            for (int j = 0; j < ELASTIC_FIELD_SIZE; j++) {
+                smallField[i][j] = random.nextDouble(-1, 1);
+            }
+        }
+
+        double[] field = new double[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double fy = y * (ELASTIC_FIELD_SIZE - 1.0) / size;
+                double fx = x * (ELASTIC_FIELD_SIZE - 1.0) / size;
+                int y1 = (int)Math.floor(fy);
+                int x1 = (int)Math.floor(fx);
+                int y2 = Math.min(y1 + 1, ELASTIC_FIELD_SIZE - 1);
+                int x2 = Math.min(x1 + 1, ELASTIC_FIELD_SIZE - 1);
+                double yw = fy - y1;
+                double xw = fx - x1;
+
+                field[y * size + x] = smallField[y1][x1] * (1 - xw) * (1 - yw) +
+                                      smallField[y1][x2] * xw * (1 - yw) +
+                                      smallField[y2][x1] * (1 - xw) * yw +
+                                      smallField[y2][x2] * xw * yw;
+            }
+        }
+        return field;
+    }
+}
@@ -0,0 +1,959 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class Benchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int FOOTPRINT_COPIES = 10;
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "throughput";
+
+        switch (scenario) {
+            case "throughput": runThroughput(); break;
+            case "batch": runBatchSizes(); break;
+            case "threads": runThreadScaling(); break;
+            case "hogwild": runHogwildComparison(); break;
+            case "alloc": runAllocationRate(); break;
+            case "precision": runPrecisionComparison(); break;
+            case "kernels": runKernels(); break;
+            case "inference": runBatchInference(); break;
+            case "augmentation": runAugmentationPipeline(); break;
+            case "warp": runAugmentationCost(); break;
+            case "cache": runAugmentationCache(); break;
+            case "validation": runValidationOverlap(); break;
+            case "optimizers": runOptimizers(); break;
+            case "head": runOutputHeads(); break;
+            case "topology": runTopologies(); break;
+            case "activations": runActivations(); break;
+            case "conv": runConvolutions(); break;
+            case "quantization": runQuantization(); break;
+            case "pruning": runPruning(); break;
+            case "samples": runSampleFootprint(); break;
+            default:
+                System.err.println("Nieznany scenariusz: " + scenario);
+                System.err.println("Dostępne: throughput, batch, threads, hogwild, alloc, precision, kernels, inference, augmentation, warp, cache, validation, optimizers, head, topology, activations, conv, quantization, pruning, samples");
+        }
+    }
+
+    private static List<Sample> loadSubset(int size) {
+        List<Sample> samples = MyDataLoader.loadSamples();
+        if (samples.isEmpty()) {
+            throw new IllegalStateException("Brak próbek w folderze data/");
+        }
+        Collections.shuffle(samples, new Random(42));
+        return new ArrayList<>(samples.subList(0, Math.min(size, samples.size())));
+    }
+
+    private static void runThroughput() {
+        List<Sample> samples = loadSubset(400);
+        NeuralNetwork net = new NeuralNetwork();
+        System.out.println("Architektura: " + net.getArchitectureString());
+
+        double predictRate = 0.0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Sample sample : samples) {
+                net.predict(sample.getInput());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (round >= WARMUP_ROUNDS) {
+                predictRate = Math.max(predictRate, samples.size() / seconds);
+            }
+        }
+        System.out.printf("predict: %.0f próbek/s%n", predictRate);
+
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 100));
+        List<Sample> validationData = new ArrayList<>(samples.subList(100, 200));
+        double bestEpochSeconds = Double.MAX_VALUE;
+        for (int round = 0; round < 2 + 3; round++) {
+            long start = System.nanoTime();
+            net.trainOneEpoch(trainingData, validationData, 0);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (round >= 2) {
+                bestEpochSeconds = Math.min(bestEpochSeconds, seconds);
+            }
+        }
+        System.out.printf("trainOneEpoch (%d próbek bazowych): %.3f s%n", trainingData.size(), bestEpochSeconds);
+    }
+
+    private static void runBatchSizes() {
+        List<Sample> samples = loadSubset(1024);
+        int[] batchSizes = {1, 8, 16, 32, 64, 128};
+
+        for (int batchSize : batchSizes) {
+            NeuralNetwork net = new NeuralNetwork();
+            net.setBatchSize(batchSize);
+            double rate = measureTrainingRate(net, samples);
+            System.out.printf("batch=%3d: %.0f próbek/s%n", batchSize, rate);
+        }
+    }
+
+    private static void runThreadScaling() {
+        List<Sample> samples = loadSubset(1024);
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        double baseRate = 0.0;
+        System.out.println("Dostępne rdzenie: " + Runtime.getRuntime().availableProcessors());
+
+        for (int threads : threadCounts) {
+            NeuralNetwork net = new NeuralNetwork();
+            net.setBatchSize(64);
+            net.setThreadCount(threads);
+            double rate = measureTrainingRate(net, samples);
+            if (threads == 1) {
+                baseRate = rate;
+            }
+            System.out.printf("wątki=%2d: %.0f próbek/s (x%.2f)%n", threads, rate, rate / baseRate);
+        }
+    }
+
+    private static void runHogwildComparison() {
+        List<Sample> samples = loadSubset(1200);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1000));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1000, samples.size()));
+        int epochs = 3;
+
+        String[] modes = {"synchroniczny SGD", "Hogwild x2", "Hogwild x4", "mini-batch 16 x4"};
+        for (String mode : modes) {
+            NeuralNetwork net = new NeuralNetwork(784, NeuralNetwork.defaultLayers(), 3, 0.003);
+            switch (mode) {
+                case "Hogwild x2": net.setHogwild(true); net.setThreadCount(2); break;
+                case "Hogwild x4": net.setHogwild(true); net.setThreadCount(4); break;
+                case "mini-batch 16 x4": net.setBatchSize(16); net.setThreadCount(4); break;
+            }
+
+            long start = System.nanoTime();
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                net.trainEpoch(trainingData);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-18s %.0f próbek/s, błąd walidacji: %.6f%n",
+                              mode, epochs * trainingData.size() / seconds, validationError(net, validationData));
+        }
+    }
+
+    private static void runAllocationRate() {
+        List<Sample> samples = loadSubset(512);
+        NeuralNetwork net = new NeuralNetwork();
+        double[] output = new double[3];
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            net.trainEpoch(samples);
+            for (Sample sample : samples) {
+                net.predict(sample.getInput(), output);
+            }
+        }
+
+        long before = allocatedBytes();
+        net.trainEpoch(samples);
+        System.out.printf("trainEpoch (SGD): %.1f B/próbkę%n", (allocatedBytes() - before) / (double)samples.size());
+
+        before = allocatedBytes();
+        for (Sample sample : samples) {
+            net.predict(sample.getInput(), output);
+        }
+        System.out.printf("predict(input, output): %.1f B/wywołanie%n", (allocatedBytes() - before) / (double)samples.size());
+
+        before = allocatedBytes();
+        List<Sample> augmented = net.createAugmentedData(samples, 1);
+        System.out.printf("createAugmentedData: %.1f B/próbkę augmentowaną%n",
+                          (allocatedBytes() - before) / (double)augmented.size());
+    }
+
+    private static void runPrecisionComparison() throws IOException, ClassNotFoundException {
+        List<Sample> samples = loadSubset(1200);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1000));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1000, samples.size()));
+        File initialModel = File.createTempFile("benchmark", ".dat");
+        initialModel.deleteOnExit();
+        new NeuralNetwork().saveModel(initialModel.getPath());
+        int epochs = 5;
+
+        for (Precision precision : Precision.values()) {
+            for (int batchSize : new int[] {1, 32}) {
+                NeuralNetwork net = new NeuralNetwork();
+                net.loadModel(initialModel.getPath());
+                net.setPrecision(precision);
+                net.setBatchSize(batchSize);
+
+                long start = System.nanoTime();
+                for (int epoch = 0; epoch < epochs; epoch++) {
+                    net.trainEpoch(trainingData);
+                }
+                double trainSeconds = (System.nanoTime() - start) / 1e9;
+
+                double predictRate = 0.0;
+                for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                    start = System.nanoTime();
+                    for (Sample sample : validationData) {
+                        net.predict(sample.getInput());
+                    }
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    if (round >= WARMUP_ROUNDS) {
+                        predictRate = Math.max(predictRate, validationData.size() / seconds);
+                    }
+                }
+
+                System.out.printf("%-6s batch=%2d: trening %.0f próbek/s, predict %.0f próbek/s, błąd walidacji: %.6f%n",
+                                  precision, batchSize, epochs * trainingData.size() / trainSeconds,
+                                  predictRate, validationError(net, validationData));
+            }
+        }
+    }
+
+    private static void runKernels() {
+        System.out.println("Backend: " + MatrixKernels.backendName());
+        int length = 512;
+        int calls = 200_000;
+        Random random = new Random(42);
+        double[] x = random.doubles(length, -1, 1).toArray();
+        double[] y = random.doubles(length, -1, 1).toArray();
+        float[] x32 = new float[length];
+        float[] y32 = new float[length];
+        for (int i = 0; i < length; i++) {
+            x32[i] = (float) x[i];
+            y32[i] = (float) y[i];
+        }
+
+        double[] best = new double[6];
+        Arrays.fill(best, Double.MAX_VALUE);
+        double checksum = 0.0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long[] times = new long[6];
+            long start = System.nanoTime();
+            for (int call = 0; call < calls; call++) checksum += MatrixKernels.dot(x, 0, y, 0, length);
+            times[0] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int call = 0; call < calls; call++) checksum += MatrixKernels.dot(x32, 0, y32, 0, length);
+            times[1] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int call = 0; call < calls; call++) MatrixKernels.axpy(1e-9, x, 0, y, 0, length);
+            times[2] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int call = 0; call < calls; call++) MatrixKernels.axpy(1e-9f, x32, 0, y32, 0, length);
+            times[3] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int call = 0; call < calls; call++) {
+                System.arraycopy(x, 0, y, 0, length);
+                MatrixKernels.sigmoid(y, 0, length);
+            }
+            times[4] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int call = 0; call < calls; call++) {
+                System.arraycopy(x32, 0, y32, 0, length);
+                MatrixKernels.sigmoid(y32, 0, length);
+            }
+            times[5] = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                for (int i = 0; i < times.length; i++) {
+                    best[i] = Math.min(best[i], times[i] / (double) calls);
+                }
+            }
+        }
+
+        String[] names = {"dot double", "dot float", "axpy double", "axpy float", "sigmoid double", "sigmoid float"};
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("%-15s (n=%d): %.1f ns%n", names[i], length, best[i]);
+        }
+        System.out.println("suma kontrolna: " + checksum);
+
+        List<Sample> samples = loadSubset(1024);
+        System.out.printf("trainEpoch SGD: %.0f próbek/s%n", measureTrainingRate(new NeuralNetwork(), samples));
+        NeuralNetwork floatNet = new NeuralNetwork();
+        floatNet.setPrecision(Precision.FLOAT);
+        System.out.printf("trainEpoch SGD float: %.0f próbek/s%n", measureTrainingRate(floatNet, samples));
+    }
+
+    private static void runBatchInference() throws Exception {
+        List<Sample> samples = loadSubset(1024);
+        NeuralNetwork net = new NeuralNetwork();
+        double[][] inputs = new double[samples.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = samples.get(i).getInput();
+        }
+        double[][] outputs = new double[inputs.length][3];
+
+        double predictRate = 0.0;
+        double batchRate = 0.0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < inputs.length; i++) {
+                net.predict(inputs[i], outputs[i]);
+            }
+            double predictSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            net.predictBatch(inputs, outputs);
+            double batchSeconds = (System.nanoTime() - start) / 1e9;
+            if (round >= WARMUP_ROUNDS) {
+                predictRate = Math.max(predictRate, inputs.length / predictSeconds);
+                batchRate = Math.max(batchRate, inputs.length / batchSeconds);
+            }
+        }
+        System.out.printf("predict w pętli: %.0f próbek/s%n", predictRate);
+        System.out.printf("predictBatch:    %.0f próbek/s%n", batchRate);
+
+        double maxDifference = 0.0;
+        double[][] batchOutputs = net.predictBatch(inputs);
+        for (int i = 0; i < inputs.length; i++) {
+            double[] single = net.predict(inputs[i]);
+            for (int k = 0; k < single.length; k++) {
+                maxDifference = Math.max(maxDifference, Math.abs(single[k] - batchOutputs[i][k]));
+            }
+        }
+        System.out.printf("maksymalna różnica predict/predictBatch: %.2e%n", maxDifference);
+
+        for (int threads : new int[] {2, 4}) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Callable<double[][]>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> net.predictBatch(inputs));
+            }
+            double rate = 0.0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (Future<double[][]> result : executor.invokeAll(tasks)) {
+                    if (!Arrays.deepEquals(result.get(), batchOutputs)) {
+                        throw new IllegalStateException("Niespójne wyniki przy współbieżnym predictBatch");
+                    }
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (round >= WARMUP_ROUNDS) {
+                    rate = Math.max(rate, threads * inputs.length / seconds);
+                }
+            }
+            executor.shutdown();
+            System.out.printf("predictBatch x%d wątki: %.0f próbek/s%n", threads, rate);
+        }
+    }
+
+    private static void runAugmentationPipeline() {
+        List<Sample> samples = loadSubset(1020);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1000));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1000, samples.size()));
+        NeuralNetwork net = new NeuralNetwork();
+        int epochs = 3;
+
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            List<Sample> augmented = net.createAugmentedData(trainingData, epoch + 1);
+            net.trainEpoch(augmented);
+        }
+        System.out.printf("lista zmaterializowana: %.2f s/epokę, GC %d ms%n",
+                          (System.nanoTime() - start) / 1e9 / epochs, gcMillis() - gcBefore);
+
+        gcBefore = gcMillis();
+        start = System.nanoTime();
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            net.trainOneEpoch(trainingData, validationData, epoch + 1);
+        }
+        System.out.printf("potok strumieniowy:     %.2f s/epokę, GC %d ms%n",
+                          (System.nanoTime() - start) / 1e9 / epochs, gcMillis() - gcBefore);
+    }
+
+    private static void runAugmentationCost() {
+        List<Sample> samples = loadSubset(200);
+        NeuralNetwork net = new NeuralNetwork();
+
+        double bestNanos = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Sample> augmented = net.createAugmentedData(samples, 1);
+            double nanos = (System.nanoTime() - start) / (double)(augmented.size() - samples.size());
+            if (round >= WARMUP_ROUNDS) {
+                bestNanos = Math.min(bestNanos, nanos);
+            }
+        }
+        System.out.printf("augmentacja: %.0f ns/próbkę%n", bestNanos);
+    }
+
+    private static void runAugmentationCache() throws IOException {
+        List<Sample> samples = loadSubset(1020);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1000));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1000, samples.size()));
+        File cacheFile = File.createTempFile("augmentation", ".cache");
+        cacheFile.deleteOnExit();
+        cacheFile.delete();
+
+        long start = System.nanoTime();
+        AugmentationCache.open(cacheFile.toPath(), trainingData, 50);
+        System.out.printf("budowa pamięci podręcznej: %.2f s, %d MB%n",
+                          (System.nanoTime() - start) / 1e9, cacheFile.length() >> 20);
+        start = System.nanoTime();
+        AugmentationCache cache = AugmentationCache.open(cacheFile.toPath(), trainingData, 50);
+        System.out.printf("ponowne otwarcie: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        AugmentationEngine engine = new AugmentationEngine(28);
+        double[] output = new double[784];
+        double engineNanos = Double.MAX_VALUE;
+        double cacheNanos = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            start = System.nanoTime();
+            for (Sample sample : trainingData) {
+                engine.augment(sample.getInput(), output);
+            }
+            double augmentNanos = (System.nanoTime() - start) / (double) trainingData.size();
+            start = System.nanoTime();
+            for (int i = 0; i < trainingData.size(); i++) {
+                cache.readVariant(cache.slotOf(trainingData.get(i)), i % 50, output);
+            }
+            double readNanos = (System.nanoTime() - start) / (double) trainingData.size();
+            if (round >= WARMUP_ROUNDS) {
+                engineNanos = Math.min(engineNanos, augmentNanos);
+                cacheNanos = Math.min(cacheNanos, readNanos);
+            }
+        }
+        System.out.printf("augmentacja na bieżąco: %.0f ns/próbkę%n", engineNanos);
+        System.out.printf("odczyt z pamięci podręcznej: %.0f ns/próbkę%n", cacheNanos);
+    }
+
+    private static void runValidationOverlap() {
+        List<Sample> samples = loadSubset(1000);
+        int epochs = 4;
+        int[] intervals = {1, epochs};
+
+        for (int interval : intervals) {
+            NeuralNetwork net = new NeuralNetwork();
+            net.setPatience(epochs);
+            net.setValidationSplit(0.5);
+            net.setValidationInterval(interval);
+            long start = System.nanoTime();
+            net.train(new ArrayList<>(samples), epochs);
+            System.out.printf("walidacja co %d epok: %.2f s/epokę%n",
+                              interval, (System.nanoTime() - start) / 1e9 / epochs);
+        }
+    }
+
+    private static void runOptimizers() {
+        List<Sample> samples = loadSubset(1800);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1200));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1200, samples.size()));
+        Optimizer[] optimizers = {Optimizer.sgd(), Optimizer.momentum(0.9), Optimizer.nesterov(0.9),
+                                  Optimizer.adam(), Optimizer.adamW(0.01)};
+        double[] learningRates = {0.5, 0.05, 0.05, 0.001, 0.001};
+
+        for (int o = 0; o < optimizers.length; o++) {
+            NeuralNetwork net = new NeuralNetwork(784, NeuralNetwork.defaultLayers(), 3, learningRates[o]);
+            net.setBatchSize(16);
+            net.setOptimizer(optimizers[o]);
+            trainToAccuracy(String.valueOf(optimizers[o]), net, trainingData, validationData);
+        }
+    }
+
+    private static void runOutputHeads() {
+        List<Sample> samples = loadSubset(1800);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1200));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1200, samples.size()));
+        Optimizer[] optimizers = {Optimizer.nesterov(0.9), Optimizer.adam()};
+        double[] learningRates = {0.05, 0.001};
+
+        int runs = 3;
+
+        for (int o = 0; o < optimizers.length; o++) {
+            for (OutputHead head : OutputHead.values()) {
+                for (int run = 0; run < runs; run++) {
+                    NeuralNetwork net = new NeuralNetwork(784, NeuralNetwork.defaultLayers(), 3, learningRates[o]);
+                    net.setBatchSize(16);
+                    net.setOptimizer(optimizers[o]);
+                    net.setOutputHead(head);
+                    trainToAccuracy(head + " + " + optimizers[o], net, trainingData, validationData);
+                }
+            }
+        }
+    }
+
+    private static void runTopologies() throws IOException {
+        List<Sample> samples = loadSubset(1800);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1200));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1200, samples.size()));
+        double[][] inputs = new double[validationData.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = validationData.get(i).getInput();
+        }
+        Map<String, List<Layer>> topologies = new LinkedHashMap<>();
+        topologies.put("domyślna", NeuralNetwork.defaultLayers());
+        topologies.put("kompaktowa", NeuralNetwork.compactLayers());
+        topologies.put("tanh 256-64", Arrays.asList(new Layer(256, Activation.TANH), new Layer(64, Activation.TANH)));
+        topologies.put("relu 64", Collections.singletonList(new Layer(64, Activation.RELU)));
+
+        for (Map.Entry<String, List<Layer>> topology : topologies.entrySet()) {
+            NeuralNetwork net = new NeuralNetwork(784, topology.getValue(), 3, 0.001);
+            net.setBatchSize(16);
+            net.setOptimizer(Optimizer.adam());
+            net.setOutputHead(OutputHead.SOFTMAX);
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            for (int epoch = 0; epoch < 5; epoch++) {
+                Collections.shuffle(trainingData, random);
+                net.trainEpoch(trainingData);
+            }
+            System.out.printf("%s (%s): dokładność po 5 epokach %.1f%%, %.1f s%n", topology.getKey(),
+                              net.getArchitectureString(), accuracy(net, validationData) * 100,
+                              (System.nanoTime() - start) / 1e9);
+
+            double predictNanos = Double.MAX_VALUE;
+            double batchRate = 0.0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                start = System.nanoTime();
+                for (double[] input : inputs) {
+                    net.predict(input);
+                }
+                double singleNanos = (System.nanoTime() - start) / (double) inputs.length;
+                start = System.nanoTime();
+                net.predictBatch(inputs);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (round >= WARMUP_ROUNDS) {
+                    predictNanos = Math.min(predictNanos, singleNanos);
+                    batchRate = Math.max(batchRate, inputs.length / seconds);
+                }
+            }
+            File modelFile = File.createTempFile("topology", ".bin");
+            modelFile.deleteOnExit();
+            net.setOptimizer(Optimizer.sgd());
+            net.saveModel(modelFile.getPath());
+            System.out.printf("  predict %.1f µs/próbkę, predictBatch %.0f próbek/s, model %d KB%n",
+                              predictNanos / 1e3, batchRate, modelFile.length() >> 10);
+        }
+    }
+
+    private static void runActivations() {
+        int length = 512;
+        int calls = 100_000;
+        double[] x = new Random(42).doubles(length, -8, 8).toArray();
+        double[] y = new double[length];
+        String[] names = {"sigmoid Math.exp", "tanh Math.tanh", "SIGMOID", "FAST_SIGMOID", "TANH", "RELU", "LEAKY_RELU"};
+        double[] best = new double[names.length];
+        Arrays.fill(best, Double.MAX_VALUE);
+        double checksum = 0.0;
+
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            for (int variant = 0; variant < names.length; variant++) {
+                long start = System.nanoTime();
+                for (int call = 0; call < calls; call++) {
+                    System.arraycopy(x, 0, y, 0, length);
+                    if (variant == 0) {
+                        for (int i = 0; i < length; i++) {
+                            y[i] = 1.0 / (1.0 + Math.exp(-y[i]));
+                        }
+                    } else if (variant == 1) {
+                        for (int i = 0; i < length; i++) {
+                            y[i] = Math.tanh(y[i]);
+                        }
+                    } else {
+                        Activation.valueOf(names[variant]).apply(y, 0, length);
+                    }
+                    checksum += y[call % length];
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    best[variant] = Math.min(best[variant], (System.nanoTime() - start) / (double) calls / length);
+                }
+            }
+        }
+        System.out.println("Backend: " + MatrixKernels.backendName());
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("%-17s %.2f ns/element%n", names[i], best[i]);
+        }
+        System.out.println("suma kontrolna: " + checksum);
+
+        double[] probe = new double[400_001];
+        double[] fast = new double[probe.length];
+        double[] tanh = new double[probe.length];
+        for (int i = 0; i < probe.length; i++) {
+            probe[i] = -20.0 + i * 1e-4;
+        }
+        System.arraycopy(probe, 0, fast, 0, probe.length);
+        System.arraycopy(probe, 0, tanh, 0, probe.length);
+        Activation.FAST_SIGMOID.apply(fast, 0, fast.length);
+        Activation.TANH.apply(tanh, 0, tanh.length);
+        double sigmoidError = 0.0;
+        double tanhError = 0.0;
+        for (int i = 0; i < probe.length; i++) {
+            sigmoidError = Math.max(sigmoidError, Math.abs(fast[i] - 1.0 / (1.0 + Math.exp(-probe[i]))));
+            tanhError = Math.max(tanhError, Math.abs(tanh[i] - Math.tanh(probe[i])));
+        }
+        System.out.printf("maks. błąd FAST_SIGMOID: %.2e, TANH: %.2e (x w [-20, 20])%n", sigmoidError, tanhError);
+
+        List<Sample> samples = loadSubset(500);
+        for (Activation activation : new Activation[] {Activation.SIGMOID, Activation.FAST_SIGMOID}) {
+            List<Layer> layers = new ArrayList<>();
+            for (Layer layer : NeuralNetwork.defaultLayers()) {
+                layers.add(new Layer(layer.getSize(), activation));
+            }
+            NeuralNetwork net = new NeuralNetwork(784, layers, 3, 0.001);
+            double predictNanos = Double.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (Sample sample : samples) {
+                    net.predict(sample.getInput());
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    predictNanos = Math.min(predictNanos, (System.nanoTime() - start) / (double) samples.size());
+                }
+            }
+            System.out.printf("predict %-12s %.1f µs/próbkę%n", activation, predictNanos / 1e3);
+        }
+    }
+
+    private static void runConvolutions() {
+        List<Sample> samples = loadSubset(1800);
+        List<Sample> trainingData = new ArrayList<>(samples.subList(0, 1200));
+        List<Sample> validationData = new ArrayList<>(samples.subList(1200, samples.size()));
+        AugmentationEngine engine = new AugmentationEngine(28);
+        List<Sample> shiftedData = new ArrayList<>();
+        for (Sample sample : validationData) {
+            double[] input = new double[sample.getInput().length];
+            engine.augment(sample.getInput(), input);
+            shiftedData.add(new Sample(input, sample.getTarget()));
+        }
+        double[][] inputs = new double[validationData.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = validationData.get(i).getInput();
+        }
+
+        Map<String, NeuralNetwork> models = new LinkedHashMap<>();
+        models.put("domyślna", new NeuralNetwork(784, NeuralNetwork.defaultLayers(), 3, 0.001));
+        models.put("kompaktowa", new NeuralNetwork(784, NeuralNetwork.compactLayers(), 3, 0.001));
+        models.put("LeNet", new NeuralNetwork(28, NeuralNetwork.lenetConvolutions(), NeuralNetwork.lenetLayers(), 3, 0.001));
+
+        for (Map.Entry<String, NeuralNetwork> model : models.entrySet()) {
+            NeuralNetwork net = model.getValue();
+            net.setBatchSize(16);
+            net.setOptimizer(Optimizer.adam());
+            net.setOutputHead(OutputHead.SOFTMAX);
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            for (int epoch = 0; epoch < 5; epoch++) {
+                Collections.shuffle(trainingData, random);
+                net.trainEpoch(trainingData);
+            }
+            double trainingSeconds = (System.nanoTime() - start) / 1e9;
+
+            double predictNanos = Double.MAX_VALUE;
+            double batchRate = 0.0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                start = System.nanoTime();
+                for (double[] input : inputs) {
+                    net.predict(input);
+                }
+                double singleNanos = (System.nanoTime() - start) / (double) inputs.length;
+                start = System.nanoTime();
+                net.predictBatch(inputs);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (round >= WARMUP_ROUNDS) {
+                    predictNanos = Math.min(predictNanos, singleNanos);
+                    batchRate = Math.max(batchRate, inputs.length / seconds);
+                }
+            }
+            System.out.printf("%s (%s)%n", model.getKey(), net.getArchitectureString());
+            System.out.printf("  %d MAC/próbkę, trening 5 epok %.1f s, dokładność %.1f%%, po augmentacji %.1f%%%n",
+                              net.getMultiplyAccumulates(), trainingSeconds, accuracy(net, validationData) * 100,
+                              accuracy(net, shiftedData) * 100);
+            System.out.printf("  predict %.1f µs/próbkę, predictBatch %.0f próbek/s%n", predictNanos / 1e3, batchRate);
+        }
+    }
+
+    private static void runQuantization() throws IOException, ClassNotFoundException {
+        List<Sample> trainingData = loadSubset(Integer.MAX_VALUE);
+        List<Sample> testData = MyDataLoader.loadSamplesFromDir("test_data");
+        if (testData.isEmpty()) {
+            throw new IllegalStateException("Brak próbek w folderze test_data/");
+        }
+        double[][] inputs = new double[testData.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = testData.get(i).getInput();
+        }
+        List<Sample> calibrationData = trainingData.subList(0, Math.min(500, trainingData.size()));
+
+        Map<String, NeuralNetwork> models = new LinkedHashMap<>();
+        if (new File("model.dat").exists()) {
+            NeuralNetwork saved = new NeuralNetwork();
+            saved.loadModel("model.dat");
+            models.put("model.dat", saved);
+        }
+        models.put("domyślna", new NeuralNetwork(784, NeuralNetwork.defaultLayers(), 3, 0.001));
+        models.put("kompaktowa", new NeuralNetwork(784, NeuralNetwork.compactLayers(), 3, 0.001));
+
+        for (Map.Entry<String, NeuralNetwork> model : models.entrySet()) {
+            NeuralNetwork net = model.getValue();
+            if (!model.getKey().equals("model.dat")) {
+                net.setBatchSize(16);
+                net.setOptimizer(Optimizer.adam());
+                net.setOutputHead(OutputHead.SOFTMAX);
+                Random random = new Random(7);
+                for (int epoch = 0; epoch < 5; epoch++) {
+                    Collections.shuffle(trainingData, random);
+                    net.trainEpoch(trainingData);
+                }
+            }
+            QuantizedNetwork quantized = net.quantize(calibrationData);
+
+            int agreement = 0;
+            for (double[] input : inputs) {
+                if (argMax(net.predict(input)) == argMax(quantized.predict(input))) {
+                    agreement++;
+                }
+            }
+            double doubleNanos = Double.MAX_VALUE;
+            double int8Nanos = Double.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (double[] input : inputs) {
+                    net.predict(input);
+                }
+                long middle = System.nanoTime();
+                for (double[] input : inputs) {
+                    quantized.predict(input);
+                }
+                long end = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    doubleNanos = Math.min(doubleNanos, (middle - start) / (double) inputs.length);
+                    int8Nanos = Math.min(int8Nanos, (end - middle) / (double) inputs.length);
+                }
+            }
+
+            File modelFile = File.createTempFile("model", ".bin");
+            File quantizedFile = File.createTempFile("model", ".q8");
+            modelFile.deleteOnExit();
+            quantizedFile.deleteOnExit();
+            net.setOptimizer(Optimizer.sgd());
+            net.saveModel(modelFile.getPath());
+            quantized.save(quantizedFile.getPath());
+            QuantizedNetwork reloaded = QuantizedNetwork.load(quantizedFile.getPath());
+
+            System.out.printf("%s (%s)%n", model.getKey(), quantized.getArchitectureString());
+            System.out.printf("  test_data: double %.2f%%, int8 %.2f%% (po wczytaniu %.2f%%), zgodność %.2f%%%n",
+                              accuracy(net, testData) * 100, accuracy(quantized::predict, testData) * 100,
+                              accuracy(reloaded::predict, testData) * 100, agreement * 100.0 / inputs.length);
+            System.out.printf("  predict double %.1f µs, int8 %.1f µs; wagi int8 %d KB, plik %d KB -> %d KB%n",
+                              doubleNanos / 1e3, int8Nanos / 1e3, quantized.getWeightBytes() >> 10,
+                              modelFile.length() >> 10, quantizedFile.length() >> 10);
+        }
+    }
+
+    private static void runPruning() throws IOException, ClassNotFoundException {
+        List<Sample> trainingData = loadSubset(Integer.MAX_VALUE);
+        List<Sample> testData = MyDataLoader.loadSamplesFromDir("test_data");
+        if (testData.isEmpty()) {
+            throw new IllegalStateException("Brak próbek w folderze test_data/");
+        }
+        double[][] inputs = new double[testData.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = testData.get(i).getInput();
+        }
+
+        NeuralNetwork net = new NeuralNetwork();
+        if (new File("model.dat").exists()) {
+            net.loadModel("model.dat");
+        } else {
+            net.setBatchSize(16);
+            net.setOptimizer(Optimizer.adam());
+            net.setOutputHead(OutputHead.SOFTMAX);
+            Random random = new Random(7);
+            for (int epoch = 0; epoch < 5; epoch++) {
+                Collections.shuffle(trainingData, random);
+                net.trainEpoch(trainingData);
+            }
+        }
+        net.setBatchSize(16);
+        net.setOptimizer(Optimizer.adam());
+        net.setAugmentationsPerSample(1, 2);
+        net.setPeakLearningRate(0.001);
+
+        System.out.println(net.getArchitectureString());
+        System.out.printf("%-10s %-10s %-16s %-16s %-16s%n", "rzadkość", "test_data", "predict gęsty",
+                          "predict rzadki", "batch gęsty/rzadki");
+        for (double target : new double[] {0.0, 0.5, 0.75, 0.9, 0.95, 0.98}) {
+            if (target > 0.0) {
+                net.prune(trainingData, target, 3, 2);
+            }
+            net.setSparseDensityThreshold(0.0);
+            double[] dense = measureInference(net, inputs);
+            net.setSparseDensityThreshold(1.0);
+            double[] sparse = measureInference(net, inputs);
+            System.out.printf("%-10s %-10s %-16s %-16s %.1f / %.1f µs%n",
+                              String.format("%.1f%%", net.getSparsity() * 100),
+                              String.format("%.2f%%", accuracy(net, testData) * 100),
+                              String.format("%.1f µs", dense[0] / 1e3), String.format("%.1f µs", sparse[0] / 1e3),
+                              dense[1] / 1e3, sparse[1] / 1e3);
+        }
+    }
+
+    private static void runSampleFootprint() {
+        List<Sample> packed = loadSubset(Integer.MAX_VALUE);
+        long packedBytes = retainedBytes(() -> {
+            List<Sample> copies = new ArrayList<>();
+            for (int copy = 0; copy < FOOTPRINT_COPIES; copy++) {
+                for (Sample sample : packed) {
+                    copies.add(Sample.packed(sample.getInput(), sample.getTarget()));
+                }
+            }
+            return copies;
+        });
+        long denseBytes = retainedBytes(() -> {
+            List<Sample> copies = new ArrayList<>();
+            for (int copy = 0; copy < FOOTPRINT_COPIES; copy++) {
+                for (Sample sample : packed) {
+                    copies.add(new Sample(sample.getInput().clone(), sample.getTarget().clone()));
+                }
+            }
+            return copies;
+        });
+        long copies = (long) FOOTPRINT_COPIES * packed.size();
+        System.out.printf("%d próbek: double[] %.0f B/próbkę, spakowane %.0f B/próbkę (%.1fx mniej)%n",
+                          copies, denseBytes / (double) copies, packedBytes / (double) copies,
+                          denseBytes / (double) packedBytes);
+
+        List<Sample> dense = new ArrayList<>();
+        for (Sample sample : packed) {
+            dense.add(new Sample(sample.getInput(), sample.getTarget()));
+        }
+        for (int batchSize : new int[] {1, 16}) {
+            NeuralNetwork net = new NeuralNetwork(784, NeuralNetwork.compactLayers(), 3, 0.01);
+            net.setBatchSize(batchSize);
+            double denseRate = 0.0;
+            double packedRate = 0.0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                net.trainEpoch(dense);
+                long middle = System.nanoTime();
+                net.trainEpoch(packed);
+                long end = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    denseRate = Math.max(denseRate, dense.size() / ((middle - start) / 1e9));
+                    packedRate = Math.max(packedRate, packed.size() / ((end - middle) / 1e9));
+                }
+            }
+            System.out.printf("mini-batch %d: double[] %.0f próbek/s, spakowane %.0f próbek/s%n",
+                              batchSize, denseRate, packedRate);
+        }
+    }
+
+    private static long retainedBytes(Callable<List<Sample>> factory) {
+        try {
+            System.gc();
+            System.gc();
+            long before = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            List<Sample> retained = factory.call();
+            System.gc();
+            System.gc();
+            long after = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            if (retained.isEmpty()) {
+                return 0;
+            }
+            return after - before;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double[] measureInference(NeuralNetwork net, double[][] inputs) {
+        double singleNanos = Double.MAX_VALUE;
+        double batchNanos = Double.MAX_VALUE;
+        double[][] outputs = new double[inputs.length][3];
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < inputs.length; i++) {
+                net.predict(inputs[i], outputs[i]);
+            }
+            long middle = System.nanoTime();
+            net.predictBatch(inputs, outputs);
+            long end = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                singleNanos = Math.min(singleNanos, (middle - start) / (double) inputs.length);
+                batchNanos = Math.min(batchNanos, (end - middle) / (double) inputs.length);
+            }
+        }
+        return new double[] {singleNanos, batchNanos};
+    }
+
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int k = 1; k < values.length; k++) {
+            if (values[k] > values[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    private static void trainToAccuracy(String label, NeuralNetwork net, List<Sample> trainingData, 
+                                        List<Sample> validationData) {
+        double targetAccuracy = 0.9;
+        int maxEpochs = 15;
+        Random random = new Random(7);
+
+        long start = System.nanoTime();
+        int epoch = 0;
+        double accuracy = 0.0;
+        while (epoch < maxEpochs && accuracy < targetAccuracy) {
+            Collections.shuffle(trainingData, random);
+            net.trainEpoch(trainingData);
+            accuracy = accuracy(net, validationData);
+            epoch++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (accuracy >= targetAccuracy) {
+            System.out.printf("%-70s %.0f%% po %d epokach, %.1f s%n", label, targetAccuracy * 100, epoch, seconds);
+        } else {
+            System.out.printf("%-70s nie osiągnął %.0f%% w %d epokach (%.0f%%), %.1f s%n",
+                              label, targetAccuracy * 100, maxEpochs, accuracy * 100, seconds);
+        }
+    }
+
+    private static double accuracy(NeuralNetwork net, List<Sample> samples) {
+        return accuracy(net::predict, samples);
+    }
+
+    private static double accuracy(java.util.function.Function<double[], double[]> model, List<Sample> samples) {
+        int correct = 0;
+        for (Sample sample : samples) {
+            if (sample.getTarget()[argMax(model.apply(sample.getInput()))] == 1.0) {
+                correct++;
+            }
+        }
+        return correct / (double) samples.size();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += gc.getCollectionTime();
+        }
+        return total;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static double validationError(NeuralNetwork net, List<Sample> samples) {
+        double totalError = 0.0;
+        int outputs = 0;
+        for (Sample sample : samples) {
+            double[] prediction = net.predict(sample.getInput());
+            double[] target = sample.getTarget();
+            for (int k = 0; k < target.length; k++) {
+                totalError += (target[k] - prediction[k]) * (target[k] - prediction[k]);
+            }
+            outputs += target.length;
+        }
+        return totalError / outputs;
+    }
+
+    private static double measureTrainingRate(NeuralNetwork net, List<Sample> samples) {
+        double bestRate = 0.0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            net.trainEpoch(samples);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (round >= WARMUP_ROUNDS) {
+                bestRate = Math.max(bestRate, samples.size() / seconds);
+            }
+        }
+        return bestRate;
+    }
+}
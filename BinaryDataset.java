@@ -0,0 +1,202 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class BinaryDataset {
+    public static final String EXTENSION = ".bin";
+
+    private static final int DATASET_MAGIC = 0x53504C4D;
+    private static final int DATASET_VERSION = 3;
+    private static final int BIT_PIXELS = 1;
+    private static final int DOUBLE_PIXELS = 64;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES + Long.BYTES;
+
+    public static void main(String[] args) throws IOException {
+        String[] directories = args.length > 0 ? args : new String[] {"data", "test_data"};
+        for (String directory : directories) {
+            long start = System.nanoTime();
+            long fingerprint = fingerprint(directory);
+            List<Sample> samples = MyDataLoader.loadCsvSamples(directory);
+            if (samples.isEmpty()) {
+                System.err.println("Brak próbek w folderze " + directory);
+                continue;
+            }
+            Path output = pathFor(directory);
+            write(output, samples, fingerprint);
+            System.out.printf("%s: %d próbek -> %s (%d KB), %.0f ms%n", directory, samples.size(), output,
+                              Files.size(output) / 1024, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    public static Path pathFor(String directory) {
+        return Paths.get(directory + EXTENSION);
+    }
+
+    public static long fingerprint(String directory) {
+        File[] files = new File(directory).listFiles((dir, name) -> name.toLowerCase().endsWith(".csv"));
+        if (files == null) {
+            return 0L;
+        }
+        Arrays.sort(files);
+        long hash = files.length;
+        for (File file : files) {
+            hash = hash * 31 + file.getName().hashCode();
+            hash = hash * 31 + file.length();
+            hash = hash * 31 + file.lastModified();
+        }
+        return hash;
+    }
+
+    public static void write(Path path, List<Sample> samples, long fingerprint) throws IOException {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("Brak próbek do zapisania");
+        }
+        int inputSize = samples.get(0).getInputSize();
+        int classes = samples.get(0).getTarget().length;
+        boolean binary = true;
+        for (Sample sample : samples) {
+            if (sample.getInputSize() != inputSize || sample.getTarget().length != classes) {
+                throw new IllegalArgumentException("Próbki mają różne rozmiary wejścia lub wyjścia");
+            }
+            if (sample.getLabel() < 0) {
+                throw new IllegalArgumentException("Próbka bez jednoznacznej etykiety klasy");
+            }
+            binary &= sample.isPacked();
+        }
+
+        int encoding = binary ? BIT_PIXELS : DOUBLE_PIXELS;
+        int rowBytes = rowBytes(encoding, inputSize);
+        long size = HEADER_SIZE + samples.size() + padding(samples.size()) + (long) samples.size() * rowBytes +
+                    Integer.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(DATASET_MAGIC);
+        buffer.putInt(DATASET_VERSION);
+        buffer.putInt(encoding);
+        buffer.putInt(samples.size());
+        buffer.putInt(inputSize);
+        buffer.putInt(classes);
+        buffer.putLong(fingerprint);
+        for (Sample sample : samples) {
+            buffer.put((byte) sample.getLabel());
+        }
+        buffer.position(buffer.position() + padding(samples.size()));
+
+        double[] input = new double[inputSize];
+        long[] bits = new long[rowBytes / Long.BYTES];
+        for (Sample sample : samples) {
+            sample.copyInput(input, 0);
+            if (binary) {
+                Arrays.fill(bits, 0L);
+                for (int i = 0; i < inputSize; i++) {
+                    if (input[i] != 0.0) {
+                        bits[i >>> 6] |= 1L << i;
+                    }
+                }
+                for (long word : bits) {
+                    buffer.putLong(word);
+                }
+            } else {
+                for (double value : input) {
+                    buffer.putDouble(value);
+                }
+            }
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+
+        AtomicFiles.write(path, buffer);
+    }
+
+    public static List<Sample> read(Path path, long fingerprint) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            int contentSize = buffer.limit() - Integer.BYTES;
+            if (contentSize < HEADER_SIZE || buffer.getInt(0) != DATASET_MAGIC) {
+                throw new IOException("To nie jest plik zbioru danych: " + path);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().limit(contentSize));
+            if ((int) checksum.getValue() != buffer.getInt(contentSize)) {
+                throw new IOException("Nieprawidłowa suma kontrolna pliku zbioru danych: " + path);
+            }
+            buffer.limit(contentSize);
+
+            try {
+                buffer.getInt();
+                int version = buffer.getInt();
+                if (version != DATASET_VERSION) {
+                    throw new IOException("Nieobsługiwana wersja formatu zbioru danych: " + version);
+                }
+                int encoding = buffer.getInt();
+                if (encoding != BIT_PIXELS && encoding != DOUBLE_PIXELS) {
+                    throw new IOException("Nieznane kodowanie pikseli: " + encoding);
+                }
+                int count = buffer.getInt();
+                int inputSize = buffer.getInt();
+                int classes = buffer.getInt();
+                if (buffer.getLong() != fingerprint) {
+                    return null;
+                }
+                if (count < 0 || inputSize <= 0 || classes <= 0 || classes > Byte.MAX_VALUE) {
+                    throw new IOException("Nieprawidłowy nagłówek zbioru danych: " + count + " próbek, wejście " +
+                                          inputSize + ", klasy " + classes);
+                }
+                int rowBytes = rowBytes(encoding, inputSize);
+                if (HEADER_SIZE + count + padding(count) + (long) count * rowBytes != contentSize) {
+                    throw new IOException("Rozmiar pliku zbioru danych nie zgadza się z nagłówkiem: " + path);
+                }
+
+                int pixelsOffset = HEADER_SIZE + count + padding(count);
+                List<Sample> samples = new ArrayList<>(count);
+                for (int s = 0; s < count; s++) {
+                    int label = buffer.get(HEADER_SIZE + s);
+                    if (label < 0 || label >= classes) {
+                        throw new IOException("Nieprawidłowa etykieta klasy próbki " + s + ": " + label);
+                    }
+                    int offset = pixelsOffset + s * rowBytes;
+                    if (encoding == BIT_PIXELS) {
+                        long[] bits = new long[rowBytes / Long.BYTES];
+                        buffer.position(offset);
+                        buffer.asLongBuffer().get(bits);
+                        samples.add(Sample.fromBits(bits, inputSize, label, classes));
+                    } else {
+                        double[] input = new double[inputSize];
+                        buffer.position(offset);
+                        buffer.asDoubleBuffer().get(input);
+                        double[] target = new double[classes];
+                        target[label] = 1.0;
+                        samples.add(new Sample(input, target));
+                    }
+                }
+                return samples;
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Rozmiar pliku zbioru danych nie zgadza się z nagłówkiem: " + path, e);
+            }
+        }
+    }
+
+    private static int rowBytes(int encoding, int inputSize) {
+        return encoding == BIT_PIXELS ? (inputSize + Long.SIZE - 1) / Long.SIZE * Long.BYTES : inputSize * Double.BYTES;
+    }
+
+    private static int padding(int labelBytes) {
+        return (Long.BYTES - labelBytes % Long.BYTES) % Long.BYTES;
+    }
+}
@@ -0,0 +1,41 @@
+public final class ConvLayer {
+    private final int filters;
+    private final int kernelSize;
+    private final Activation activation;
+    private final int poolSize;
+
+    public ConvLayer(int filters, int kernelSize, Activation activation, int poolSize) {
+        if (filters <= 0) {
+            throw new IllegalArgumentException("Liczba filtrów musi być dodatnia: " + filters);
+        }
+        if (kernelSize <= 0) {
+            throw new IllegalArgumentException("Rozmiar jądra splotu musi być dodatni: " + kernelSize);
+        }
+        if (activation == null) {
+            throw new IllegalArgumentException("Funkcja aktywacji nie może być pusta");
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Rozmiar poolingu musi być dodatni: " + poolSize);
+        }
+        this.filters = filters;
+        this.kernelSize = kernelSize;
+        this.activation = activation;
+        this.poolSize = poolSize;
+    }
+
+    public int getFilters() {
+        return filters;
+    }
+
+    public int getKernelSize() {
+        return kernelSize;
+    }
+
+    public Activation getActivation() {
+        return activation;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+}
@@ -0,0 +1,281 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ConvolutionalFrontEnd {
+    private final int imageSize;
+    private final ConvLayer[] layers;
+    private final int[] inputSizes;
+    private final int[] inputChannels;
+    private final int[] convolvedSizes;
+    private final int[] outputSizes;
+
+    public ConvolutionalFrontEnd(int imageSize, List<ConvLayer> layers) {
+        if (imageSize <= 0) {
+            throw new IllegalArgumentException("Rozmiar obrazu musi być dodatni: " + imageSize);
+        }
+        if (layers.isEmpty()) {
+            throw new IllegalArgumentException("Brak warstw konwolucyjnych");
+        }
+        this.imageSize = imageSize;
+        this.layers = layers.toArray(new ConvLayer[0]);
+        this.inputSizes = new int[this.layers.length];
+        this.inputChannels = new int[this.layers.length];
+        this.convolvedSizes = new int[this.layers.length];
+        this.outputSizes = new int[this.layers.length];
+
+        int size = imageSize;
+        int channels = 1;
+        for (int layer = 0; layer < this.layers.length; layer++) {
+            ConvLayer spec = this.layers[layer];
+            if (spec.getKernelSize() > size) {
+                throw new IllegalArgumentException("Jądro splotu " + spec.getKernelSize() +
+                                                   " jest większe niż wejście warstwy " + size + "×" + size);
+            }
+            inputSizes[layer] = size;
+            inputChannels[layer] = channels;
+            convolvedSizes[layer] = size - spec.getKernelSize() + 1;
+            outputSizes[layer] = convolvedSizes[layer] / spec.getPoolSize();
+            if (outputSizes[layer] == 0) {
+                throw new IllegalArgumentException("Pooling " + spec.getPoolSize() + " jest większy niż mapa cech " +
+                                                   convolvedSizes[layer] + "×" + convolvedSizes[layer]);
+            }
+            size = outputSizes[layer];
+            channels = spec.getFilters();
+        }
+    }
+
+    public int getImageSize() {
+        return imageSize;
+    }
+
+    public List<ConvLayer> getLayers() {
+        return Arrays.asList(layers.clone());
+    }
+
+    int layerCount() {
+        return layers.length;
+    }
+
+    int inputSize() {
+        return imageSize * imageSize;
+    }
+
+    int outputSize() {
+        int last = layers.length - 1;
+        return outputSizes[last] * outputSizes[last] * layers[last].getFilters();
+    }
+
+    int weightSize(int layer) {
+        return patchSize(layer) * layers[layer].getFilters();
+    }
+
+    int biasSize(int layer) {
+        return layers[layer].getFilters();
+    }
+
+    long multiplyAccumulates() {
+        long total = 0;
+        for (int layer = 0; layer < layers.length; layer++) {
+            total += (long) positions(layer) * weightSize(layer);
+        }
+        return total;
+    }
+
+    private int patchSize(int layer) {
+        return layers[layer].getKernelSize() * layers[layer].getKernelSize() * inputChannels[layer];
+    }
+
+    private int positions(int layer) {
+        return convolvedSizes[layer] * convolvedSizes[layer];
+    }
+
+    private int pooledSize(int layer) {
+        return outputSizes[layer] * outputSizes[layer] * layers[layer].getFilters();
+    }
+
+    void initialize(double[][] weights, double[][] biases) {
+        for (int layer = 0; layer < layers.length; layer++) {
+            weights[layer] = new double[weightSize(layer)];
+            biases[layer] = new double[biasSize(layer)];
+
+            double limit = layers[layer].getActivation().initializationLimit(patchSize(layer), layers[layer].getFilters());
+            for (int i = 0; i < weights[layer].length; i++) {
+                weights[layer][i] = ThreadLocalRandom.current().nextDouble(-limit, limit);
+            }
+            for (int j = 0; j < biases[layer].length; j++) {
+                biases[layer][j] = ThreadLocalRandom.current().nextDouble(-0.1, 0.1);
+            }
+        }
+    }
+
+    void forward(int rows, double[][] weights, double[][] biases, Buffers buffers) {
+        double[] input = buffers.input;
+
+        for (int layer = 0; layer < layers.length; layer++) {
+            ConvLayer spec = layers[layer];
+            int filters = spec.getFilters();
+            int patch = patchSize(layer);
+            int positions = positions(layer);
+            int inputStride = inputSizes[layer] * inputSizes[layer] * inputChannels[layer];
+            double[] columns = buffers.columns[layer];
+            double[] convolved = buffers.convolved[layer];
+
+            for (int row = 0; row < rows; row++) {
+                int columnsOffset = row * patch * positions;
+                int outputOffset = row * filters * positions;
+                MatrixKernels.im2col(input, row * inputStride, inputSizes[layer], inputChannels[layer],
+                                     spec.getKernelSize(), columns, columnsOffset);
+                for (int filter = 0; filter < filters; filter++) {
+                    int plane = outputOffset + filter * positions;
+                    Arrays.fill(convolved, plane, plane + positions, biases[layer][filter]);
+                }
+                MatrixKernels.gemm(weights[layer], 0, columns, columnsOffset, convolved, outputOffset,
+                                   filters, patch, positions);
+            }
+            spec.getActivation().apply(convolved, 0, rows * filters * positions);
+
+            if (spec.getPoolSize() > 1) {
+                int pooledSize = pooledSize(layer);
+                for (int row = 0; row < rows; row++) {
+                    MatrixKernels.maxPool(convolved, row * filters * positions, convolvedSizes[layer], filters,
+                                          spec.getPoolSize(), buffers.pooled[layer], row * pooledSize,
+                                          buffers.poolIndices[layer]);
+                }
+            }
+            input = buffers.pooled[layer];
+        }
+    }
+
+    void backward(int rows, double[][] weights, Buffers buffers, double[][] weightGradients, double[][] biasGradients) {
+        for (int layer = layers.length - 1; layer >= 0; layer--) {
+            ConvLayer spec = layers[layer];
+            int filters = spec.getFilters();
+            int patch = patchSize(layer);
+            int positions = positions(layer);
+            double[] convolved = buffers.convolved[layer];
+            double[] deltas = buffers.convolvedDeltas[layer];
+
+            if (spec.getPoolSize() > 1) {
+                double[] pooledDeltas = buffers.pooledDeltas[layer];
+                int[] indices = buffers.poolIndices[layer];
+                Arrays.fill(deltas, 0, rows * filters * positions, 0.0);
+                for (int i = 0; i < rows * pooledSize(layer); i++) {
+                    deltas[indices[i]] += pooledDeltas[i];
+                }
+            }
+
+            Activation activation = spec.getActivation();
+            for (int i = 0; i < rows * filters * positions; i++) {
+                deltas[i] *= activation.derivative(convolved[i]);
+            }
+
+            double[] weightGradient = weightGradients[layer];
+            double[] biasGradient = biasGradients[layer];
+            Arrays.fill(weightGradient, 0.0);
+            Arrays.fill(biasGradient, 0.0);
+            int inputStride = inputSizes[layer] * inputSizes[layer] * inputChannels[layer];
+            for (int row = 0; row < rows; row++) {
+                int columnsOffset = row * patch * positions;
+                int deltasOffset = row * filters * positions;
+                MatrixKernels.gemmTransB(deltas, deltasOffset, buffers.columns[layer], columnsOffset,
+                                         weightGradient, 0, filters, positions, patch);
+                for (int filter = 0; filter < filters; filter++) {
+                    int plane = deltasOffset + filter * positions;
+                    for (int p = plane; p < plane + positions; p++) {
+                        biasGradient[filter] += deltas[p];
+                    }
+                }
+            }
+
+            if (layer > 0) {
+                double[] columnDeltas = buffers.columnDeltas[layer];
+                double[] inputDeltas = buffers.pooledDeltas[layer - 1];
+                Arrays.fill(inputDeltas, 0, rows * inputStride, 0.0);
+                for (int row = 0; row < rows; row++) {
+                    Arrays.fill(columnDeltas, 0, patch * positions, 0.0);
+                    MatrixKernels.gemmTransA(weights[layer], 0, deltas, row * filters * positions, columnDeltas, 0,
+                                             patch, filters, positions);
+                    MatrixKernels.col2im(columnDeltas, 0, inputSizes[layer], inputChannels[layer],
+                                         spec.getKernelSize(), inputDeltas, row * inputStride);
+                }
+            }
+        }
+    }
+
+    Buffers createBuffers(int rows, boolean training) {
+        return new Buffers(this, rows, training);
+    }
+
+    public String describe() {
+        StringBuilder description = new StringBuilder().append(imageSize).append('×').append(imageSize);
+        for (int layer = 0; layer < layers.length; layer++) {
+            ConvLayer spec = layers[layer];
+            description.append(" → conv ").append(spec.getKernelSize()).append('×').append(spec.getKernelSize())
+                       .append('×').append(spec.getFilters()).append(' ').append(spec.getActivation());
+            if (spec.getPoolSize() > 1) {
+                description.append(" → maxpool ").append(spec.getPoolSize());
+            }
+            description.append(" (").append(outputSizes[layer]).append('×').append(outputSizes[layer])
+                       .append('×').append(spec.getFilters()).append(')');
+        }
+        return description.toString();
+    }
+
+    static final class Buffers {
+        final ConvolutionalFrontEnd owner;
+        final int rows;
+        final boolean training;
+        final double[] input;
+        final double[] output;
+        final double[] outputDeltas;
+        final double[][] columns;
+        final double[][] convolved;
+        final double[][] pooled;
+        final int[][] poolIndices;
+        final double[][] convolvedDeltas;
+        final double[][] pooledDeltas;
+        final double[][] columnDeltas;
+
+        Buffers(ConvolutionalFrontEnd owner, int rows, boolean training) {
+            int numLayers = owner.layers.length;
+            this.owner = owner;
+            this.rows = rows;
+            this.training = training;
+            input = new double[rows * owner.inputSize()];
+            columns = new double[numLayers][];
+            convolved = new double[numLayers][];
+            pooled = new double[numLayers][];
+            poolIndices = new int[numLayers][];
+            convolvedDeltas = training ? new double[numLayers][] : null;
+            pooledDeltas = training ? new double[numLayers][] : null;
+            columnDeltas = training ? new double[numLayers][] : null;
+
+            for (int layer = 0; layer < numLayers; layer++) {
+                int positions = owner.positions(layer);
+                columns[layer] = new double[rows * positions * owner.patchSize(layer)];
+                convolved[layer] = new double[rows * positions * owner.layers[layer].getFilters()];
+                boolean pooling = owner.layers[layer].getPoolSize() > 1;
+                if (pooling) {
+                    pooled[layer] = new double[rows * owner.pooledSize(layer)];
+                    poolIndices[layer] = new int[rows * owner.pooledSize(layer)];
+                } else {
+                    pooled[layer] = convolved[layer];
+                }
+                if (training) {
+                    convolvedDeltas[layer] = new double[convolved[layer].length];
+                    pooledDeltas[layer] = pooling ? new double[pooled[layer].length] : convolvedDeltas[layer];
+                    if (layer > 0) {
+                        columnDeltas[layer] = new double[positions * owner.patchSize(layer)];
+                    }
+                }
+            }
+            output = pooled[numLayers - 1];
+            outputDeltas = training ? pooledDeltas[numLayers - 1] : null;
+        }
+
+        boolean fits(ConvolutionalFrontEnd frontEnd, int rowCount, boolean trainingBuffers) {
+            return owner == frontEnd && rows >= rowCount && (training || !trainingBuffers);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Distiller {
+    private static final String TEST_DATA_DIR = "test_data";
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        String teacherPath = args.length > 0 ? args[0] : "model.dat";
+        String studentPath = args.length > 1 ? args[1] : "student.dat";
+        List<Layer> hiddenLayers = parseLayers(args.length > 2 ? args[2] : "64");
+        int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+        double temperature = args.length > 4 ? Double.parseDouble(args[4]) : 2.0;
+        double softTargetWeight = args.length > 5 ? Double.parseDouble(args[5]) : 0.7;
+
+        if (!new File(teacherPath).exists()) {
+            System.err.println("Brak modelu nauczyciela: " + teacherPath);
+            return;
+        }
+        NeuralNetwork teacher = new NeuralNetwork();
+        teacher.loadModel(teacherPath);
+
+        List<Sample> samples = MyDataLoader.loadSamples();
+        if (samples.isEmpty()) {
+            System.err.println("Brak próbek do treningu. Sprawdź folder data/");
+            return;
+        }
+
+        NeuralNetwork student = new NeuralNetwork(784, hiddenLayers, 3, 0.003);
+        student.setOutputHead(teacher.getOutputHead());
+        student.setOptimizer(Optimizer.adam());
+        student.setBatchSize(16);
+        student.setInitialLearningRate(0.0003);
+        student.setPeakLearningRate(0.003);
+        student.setWarmupEpochs(5);
+        student.setPatience(15);
+        student.distill(teacher, samples, epochs, temperature, softTargetWeight);
+
+        List<Sample> testData = MyDataLoader.loadSamplesFromDir(TEST_DATA_DIR);
+        if (!testData.isEmpty()) {
+            report("Nauczyciel", teacher, testData);
+            report("Uczeń", student, testData);
+        }
+
+        student.setOptimizer(Optimizer.sgd());
+        student.saveModel(studentPath);
+        System.out.println("Model ucznia został zapisany do " + studentPath +
+                           " (" + new File(studentPath).length() / 1024 + " KB)");
+    }
+
+    private static List<Layer> parseLayers(String specification) {
+        List<Layer> layers = new ArrayList<>();
+        for (String size : specification.split(",")) {
+            layers.add(new Layer(Integer.parseInt(size.trim()), Activation.RELU));
+        }
+        return layers;
+    }
+
+    private static void report(String label, NeuralNetwork net, List<Sample> testData) {
+        double[] output = new double[3];
+        int correct = 0;
+        for (Sample sample : testData) {
+            net.predict(sample.getInput(), output);
+            if (sample.getTarget()[argMax(output)] > 0.5) {
+                correct++;
+            }
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (Sample sample : testData) {
+                net.predict(sample.getInput(), output);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("%s %s: %.2f%% na %s, %.1f µs/próbkę, %d MAC%n", label, net.getArchitectureString(),
+                          correct * 100.0 / testData.size(), TEST_DATA_DIR, best / 1e3 / testData.size(),
+                          net.getMultiplyAccumulates());
+    }
+
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int k = 1; k < values.length; k++) {
+            if (values[k] > values[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class Factorizer {
+    private static final String TEST_DATA_DIR = "test_data";
+    private static final int[] SWEEP_RANKS = {8, 16, 32, 64, 128, 256};
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        String modelPath = args.length > 0 ? args[0] : "model.dat";
+        String outputPath = args.length > 1 ? args[1] : "model-lowrank.dat";
+        String rank = args.length > 2 ? args[2] : "sweep";
+        int fineTuneEpochs = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int layer = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        if (!new File(modelPath).exists()) {
+            System.err.println("Brak modelu: " + modelPath);
+            return;
+        }
+        List<Sample> samples = MyDataLoader.loadSamples();
+        List<Sample> testData = MyDataLoader.loadSamplesFromDir(TEST_DATA_DIR);
+        if (samples.isEmpty() || testData.isEmpty()) {
+            System.err.println("Brak próbek w folderach data/ i " + TEST_DATA_DIR + "/");
+            return;
+        }
+
+        if (!rank.equals("sweep")) {
+            NeuralNetwork net = load(modelPath);
+            net.factorize(layer, Integer.parseInt(rank));
+            if (fineTuneEpochs > 0) {
+                net.fineTune(samples, fineTuneEpochs);
+            }
+            report(net.getArchitectureString(), net, testData);
+            net.setOptimizer(Optimizer.sgd());
+            net.saveModel(outputPath);
+            System.out.println("Model został zapisany do " + outputPath +
+                               " (" + new File(outputPath).length() / 1024 + " KB)");
+            return;
+        }
+
+        NeuralNetwork original = load(modelPath);
+        System.out.println("Model: " + original.getArchitectureString() + ", warstwa " + layer);
+        System.out.printf("%-8s %-10s %-12s %-12s %-12s %-12s%n", "rząd", "energia", "MAC", "bez dostr.",
+                          "po dostr.", "predict");
+        report("pełny", original, testData);
+
+        double[] singularValues = original.singularValues(layer);
+        double totalEnergy = 0.0;
+        for (double value : singularValues) {
+            totalEnergy += value * value;
+        }
+        for (int sweepRank : SWEEP_RANKS) {
+            if (sweepRank >= singularValues.length) {
+                break;
+            }
+            double energy = 0.0;
+            for (int i = 0; i < sweepRank; i++) {
+                energy += singularValues[i] * singularValues[i];
+            }
+
+            NeuralNetwork net = load(modelPath);
+            net.factorize(layer, sweepRank);
+            double before = accuracy(net, testData);
+            if (fineTuneEpochs > 0) {
+                net.fineTune(samples, fineTuneEpochs);
+            }
+            System.out.printf("%-8d %-10s %-12d %-12s %-12s %.1f µs%n", sweepRank,
+                              String.format("%.1f%%", energy / totalEnergy * 100), net.getMultiplyAccumulates(),
+                              String.format("%.2f%%", before * 100),
+                              String.format("%.2f%%", accuracy(net, testData) * 100), latency(net, testData) / 1e3);
+        }
+    }
+
+    private static NeuralNetwork load(String path) throws IOException, ClassNotFoundException {
+        NeuralNetwork net = new NeuralNetwork();
+        net.loadModel(path);
+        net.setBatchSize(16);
+        net.setOptimizer(Optimizer.adam());
+        net.setPeakLearningRate(0.001);
+        net.setAugmentationsPerSample(2, 4);
+        return net;
+    }
+
+    private static void report(String label, NeuralNetwork net, List<Sample> testData) {
+        double accuracy = accuracy(net, testData);
+        System.out.printf("%-8s %-10s %-12d %-12s %-12s %.1f µs%n", label, "100%", net.getMultiplyAccumulates(),
+                          String.format("%.2f%%", accuracy * 100), "-", latency(net, testData) / 1e3);
+    }
+
+    private static double accuracy(NeuralNetwork net, List<Sample> testData) {
+        double[] output = new double[3];
+        int correct = 0;
+        for (Sample sample : testData) {
+            net.predict(sample.getInput(), output);
+            if (sample.getTarget()[argMax(output)] > 0.5) {
+                correct++;
+            }
+        }
+        return correct / (double) testData.size();
+    }
+
+    private static double latency(NeuralNetwork net, List<Sample> testData) {
+        double[] output = new double[3];
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 8; round++) {
+            long start = System.nanoTime();
+            for (Sample sample : testData) {
+                net.predict(sample.getInput(), output);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / (double) testData.size();
+    }
+
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int k = 1; k < values.length; k++) {
+            if (values[k] > values[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,17 @@
+public interface KernelBackend {
+    String name();
+
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+    void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+    void axpy(int alpha, byte[] x, int xOffset, int[] y, int yOffset, int length);
+
+    void sigmoid(double[] values, int offset, int length);
+
+    void sigmoid(float[] values, int offset, int length);
+}
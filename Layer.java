@@ -0,0 +1,23 @@
+public final class Layer {
+    private final int size;
+    private final Activation activation;
+
+    public Layer(int size, Activation activation) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Rozmiar warstwy musi być dodatni: " + size);
+        }
+        if (activation == null) {
+            throw new IllegalArgumentException("Funkcja aktywacji nie może być pusta");
+        }
+        this.size = size;
+        this.activation = activation;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Activation getActivation() {
+        return activation;
+    }
+}
@@ -0,0 +1,270 @@
+import java.util.Arrays;
+
+public final class MatrixDecomposition {
+    private static final int MAX_ITERATIONS = 64;
+
+    private MatrixDecomposition() {
+    }
+
+    public static double[][] lowRank(double[] matrix, int rows, int columns, int rank) {
+        if (matrix.length != rows * columns) {
+            throw new IllegalArgumentException("Rozmiar macierzy " + matrix.length + " nie odpowiada wymiarom " +
+                                               rows + "×" + columns);
+        }
+        if (rank <= 0 || rank > Math.min(rows, columns)) {
+            throw new IllegalArgumentException("Rząd rozkładu musi być z przedziału 1-" + Math.min(rows, columns) +
+                                               ": " + rank);
+        }
+
+        boolean wide = rows < columns;
+        int size = wide ? rows : columns;
+        double[] gram = new double[size * size];
+        if (wide) {
+            MatrixKernels.gemmTransB(matrix, 0, matrix, 0, gram, 0, rows, columns, rows);
+        } else {
+            MatrixKernels.gemmTransA(matrix, 0, matrix, 0, gram, 0, columns, rows, columns);
+        }
+        double[] eigenvectors = new double[size * size];
+        double[] eigenvalues = new double[size];
+        symmetricEigen(gram, size, eigenvalues, eigenvectors);
+        double[] basis = leadingEigenvectors(eigenvalues, eigenvectors, size, rank);
+
+        double[] left = new double[rows * rank];
+        double[] right = new double[rank * columns];
+        if (wide) {
+            System.arraycopy(basis, 0, left, 0, left.length);
+            MatrixKernels.gemmTransA(basis, 0, matrix, 0, right, 0, rank, rows, columns);
+        } else {
+            MatrixKernels.gemm(matrix, 0, basis, 0, left, 0, rows, columns, rank);
+            for (int i = 0; i < columns; i++) {
+                for (int r = 0; r < rank; r++) {
+                    right[r * columns + i] = basis[i * rank + r];
+                }
+            }
+        }
+        return new double[][] {left, right};
+    }
+
+    public static double[] singularValues(double[] matrix, int rows, int columns) {
+        int size = Math.min(rows, columns);
+        double[] gram = new double[size * size];
+        if (rows < columns) {
+            MatrixKernels.gemmTransB(matrix, 0, matrix, 0, gram, 0, rows, columns, rows);
+        } else {
+            MatrixKernels.gemmTransA(matrix, 0, matrix, 0, gram, 0, columns, rows, columns);
+        }
+        double[] eigenvalues = new double[size];
+        symmetricEigen(gram, size, eigenvalues, new double[size * size]);
+
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = Math.sqrt(Math.max(0.0, eigenvalues[i]));
+        }
+        Arrays.sort(values);
+        for (int i = 0; i < size / 2; i++) {
+            double swap = values[i];
+            values[i] = values[size - 1 - i];
+            values[size - 1 - i] = swap;
+        }
+        return values;
+    }
+
+    private static double[] leadingEigenvectors(double[] eigenvalues, double[] eigenvectors, int size, int rank) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(eigenvalues[b], eigenvalues[a]));
+
+        double[] basis = new double[size * rank];
+        for (int r = 0; r < rank; r++) {
+            int column = order[r];
+            for (int i = 0; i < size; i++) {
+                basis[i * rank + r] = eigenvectors[i * size + column];
+            }
+        }
+        return basis;
+    }
+
+    private static void symmetricEigen(double[] matrix, int size, double[] eigenvalues, double[] eigenvectors) {
+        double[][] v = new double[size][];
+        for (int i = 0; i < size; i++) {
+            v[i] = Arrays.copyOfRange(matrix, i * size, (i + 1) * size);
+        }
+        double[] offDiagonal = new double[size];
+        tridiagonalize(v, eigenvalues, offDiagonal);
+        diagonalize(v, eigenvalues, offDiagonal);
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(v[i], 0, eigenvectors, i * size, size);
+        }
+    }
+
+    private static void tridiagonalize(double[][] v, double[] d, double[] e) {
+        int n = d.length;
+        System.arraycopy(v[n - 1], 0, d, 0, n);
+
+        for (int i = n - 1; i > 0; i--) {
+            double scale = 0.0;
+            double h = 0.0;
+            for (int k = 0; k < i; k++) {
+                scale += Math.abs(d[k]);
+            }
+            if (scale == 0.0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = v[i - 1][j];
+                    v[i][j] = 0.0;
+                    v[j][i] = 0.0;
+                }
+            } else {
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = Math.sqrt(h);
+                if (f > 0) {
+                    g = -g;
+                }
+                e[i] = scale * g;
+                h -= f * g;
+                d[i - 1] = f - g;
+                Arrays.fill(e, 0, i, 0.0);
+
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    v[j][i] = f;
+                    g = e[j] + v[j][j] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        g += v[k][j] * d[k];
+                        e[k] += v[k][j] * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0.0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                double hh = f / (h + h);
+                for (int j = 0; j < i; j++) {
+                    e[j] -= hh * d[j];
+                }
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++) {
+                        v[k][j] -= (f * e[k] + g * d[k]);
+                    }
+                    d[j] = v[i - 1][j];
+                    v[i][j] = 0.0;
+                }
+            }
+            d[i] = h;
+        }
+
+        for (int i = 0; i < n - 1; i++) {
+            v[n - 1][i] = v[i][i];
+            v[i][i] = 1.0;
+            double h = d[i + 1];
+            if (h != 0.0) {
+                for (int k = 0; k <= i; k++) {
+                    d[k] = v[k][i + 1] / h;
+                }
+                for (int j = 0; j <= i; j++) {
+                    double g = 0.0;
+                    for (int k = 0; k <= i; k++) {
+                        g += v[k][i + 1] * v[k][j];
+                    }
+                    for (int k = 0; k <= i; k++) {
+                        v[k][j] -= g * d[k];
+                    }
+                }
+            }
+            for (int k = 0; k <= i; k++) {
+                v[k][i + 1] = 0.0;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = v[n - 1][j];
+            v[n - 1][j] = 0.0;
+        }
+        v[n - 1][n - 1] = 1.0;
+        e[0] = 0.0;
+    }
+
+    private static void diagonalize(double[][] v, double[] d, double[] e) {
+        int n = d.length;
+        System.arraycopy(e, 1, e, 0, n - 1);
+        e[n - 1] = 0.0;
+
+        double f = 0.0;
+        double tst1 = 0.0;
+        double eps = Math.ulp(1.0);
+        for (int l = 0; l < n; l++) {
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n) {
+                if (Math.abs(e[m]) <= eps * tst1) {
+                    break;
+                }
+                m++;
+            }
+
+            if (m > l) {
+                for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2.0 * e[l]);
+                    double r = Math.hypot(p, 1.0);
+                    if (p < 0) {
+                        r = -r;
+                    }
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++) {
+                        d[i] -= h;
+                    }
+                    f += h;
+
+                    p = d[m];
+                    double c = 1.0;
+                    double c2 = c;
+                    double c3 = c;
+                    double el1 = e[l + 1];
+                    double s = 0.0;
+                    double s2 = 0.0;
+                    for (int i = m - 1; i >= l; i--) {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = Math.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+
+                        for (int k = 0; k < n; k++) {
+                            h = v[k][i + 1];
+                            v[k][i + 1] = s * v[k][i] + c * h;
+                            v[k][i] = c * v[k][i] - s * h;
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+
+                    if (Math.abs(e[l]) <= eps * tst1) {
+                        break;
+                    }
+                }
+            }
+            d[l] += f;
+            e[l] = 0.0;
+        }
+    }
+}
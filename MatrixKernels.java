@@ -0,0 +1,541 @@
+public final class MatrixKernels {
+    private static final int ROW_BLOCK = 64;
+    private static final int COL_BLOCK = 256;
+    private static final int VECTOR_MIN_LENGTH = 16;
+    private static final double SIGMOID_TABLE_RANGE = 16.0;
+    private static final int SIGMOID_TABLE_SCALE = 128;
+    private static final int SIGMOID_TABLE_LAST = (int)(2 * SIGMOID_TABLE_RANGE * SIGMOID_TABLE_SCALE);
+    private static final double[] SIGMOID_TABLE = createSigmoidTable();
+    private static final KernelBackend VECTOR = loadVectorBackend();
+
+    private MatrixKernels() {
+    }
+
+    public static String backendName() {
+        return VECTOR != null ? VECTOR.name() : "skalarny";
+    }
+
+    private static KernelBackend loadVectorBackend() {
+        if ("scalar".equals(System.getProperty("mlp.kernels"))) {
+            return null;
+        }
+        try {
+            return (KernelBackend) Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public static void sigmoid(double[] values, int offset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            VECTOR.sigmoid(values, offset, length);
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = 1.0 / (1.0 + Math.exp(-values[i]));
+        }
+    }
+
+    public static void sigmoid(float[] values, int offset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            VECTOR.sigmoid(values, offset, length);
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = (float)(1.0 / (1.0 + Math.exp(-values[i])));
+        }
+    }
+
+    public static void fastSigmoid(double[] values, int offset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            VECTOR.sigmoid(values, offset, length);
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = tableSigmoid(values[i]);
+        }
+    }
+
+    public static void fastSigmoid(float[] values, int offset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            VECTOR.sigmoid(values, offset, length);
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = (float) tableSigmoid(values[i]);
+        }
+    }
+
+    private static double tableSigmoid(double x) {
+        double position = (x + SIGMOID_TABLE_RANGE) * SIGMOID_TABLE_SCALE;
+        if (position <= 0.0) {
+            return 0.0;
+        }
+        if (position >= SIGMOID_TABLE_LAST) {
+            return 1.0;
+        }
+        int index = (int) position;
+        double fraction = position - index;
+        double low = SIGMOID_TABLE[index];
+        return low + fraction * (SIGMOID_TABLE[index + 1] - low);
+    }
+
+    private static double[] createSigmoidTable() {
+        double[] table = new double[SIGMOID_TABLE_LAST + 1];
+        for (int i = 0; i < table.length; i++) {
+            double x = i / (double) SIGMOID_TABLE_SCALE - SIGMOID_TABLE_RANGE;
+            table[i] = 1.0 / (1.0 + Math.exp(-x));
+        }
+        return table;
+    }
+
+    public static void tanh(double[] values, int offset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            for (int i = offset; i < offset + length; i++) {
+                values[i] *= 2.0;
+            }
+            VECTOR.sigmoid(values, offset, length);
+            for (int i = offset; i < offset + length; i++) {
+                values[i] = 2.0 * values[i] - 1.0;
+            }
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = 1.0 - 2.0 / (1.0 + Math.exp(2.0 * values[i]));
+        }
+    }
+
+    public static void tanh(float[] values, int offset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            for (int i = offset; i < offset + length; i++) {
+                values[i] *= 2.0f;
+            }
+            VECTOR.sigmoid(values, offset, length);
+            for (int i = offset; i < offset + length; i++) {
+                values[i] = 2.0f * values[i] - 1.0f;
+            }
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = (float)(1.0 - 2.0 / (1.0 + Math.exp(2.0 * values[i])));
+        }
+    }
+
+    public static void softmax(double[] values, int offset, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = offset; i < offset + length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = Math.exp(values[i] - max);
+            sum += values[i];
+        }
+        double inverse = 1.0 / sum;
+        for (int i = offset; i < offset + length; i++) {
+            values[i] *= inverse;
+        }
+    }
+
+    public static void softmax(float[] values, int offset, int length) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = offset; i < offset + length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = (float) Math.exp(values[i] - max);
+            sum += values[i];
+        }
+        float inverse = (float) (1.0 / sum);
+        for (int i = offset; i < offset + length; i++) {
+            values[i] *= inverse;
+        }
+    }
+
+    public static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            return VECTOR.dot(a, aOffset, b, bOffset, length);
+        }
+        double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+        int i = 0;
+        int unrolled = length & ~3;
+
+        for (; i < unrolled; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    public static void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            VECTOR.axpy(alpha, x, xOffset, y, yOffset, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    public static void axpy(int alpha, byte[] x, int xOffset, int[] y, int yOffset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            VECTOR.axpy(alpha, x, xOffset, y, yOffset, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    public static void gemm(double[] a, double[] b, double[] c, int m, int k, int n) {
+        multiplyAccumulate(a, 0, k, 1, b, 0, c, 0, m, k, n);
+    }
+
+    public static void gemm(double[] a, int aOffset, double[] b, int bOffset, double[] c, int cOffset,
+                            int m, int k, int n) {
+        multiplyAccumulate(a, aOffset, k, 1, b, bOffset, c, cOffset, m, k, n);
+    }
+
+    public static void gemmTransA(double[] a, double[] b, double[] c, int m, int k, int n) {
+        multiplyAccumulate(a, 0, 1, m, b, 0, c, 0, m, k, n);
+    }
+
+    public static void gemmTransA(double[] a, int aOffset, double[] b, int bOffset, double[] c, int cOffset,
+                                  int m, int k, int n) {
+        multiplyAccumulate(a, aOffset, 1, m, b, bOffset, c, cOffset, m, k, n);
+    }
+
+    public static void gemmTransB(double[] a, double[] b, double[] c, int m, int k, int n) {
+        gemmTransB(a, 0, b, 0, c, 0, m, k, n);
+    }
+
+    public static void gemmTransB(double[] a, int aOffset, double[] b, int bOffset, double[] c, int cOffset,
+                                  int m, int k, int n) {
+        for (int col0 = 0; col0 < n; col0 += ROW_BLOCK) {
+            int colEnd = Math.min(col0 + ROW_BLOCK, n);
+            int row = 0;
+
+            for (; row + 2 <= m; row += 2) {
+                int col = col0;
+                for (; col + 4 <= colEnd; col += 4) {
+                    dotBlock2x4(a, aOffset + row * k, b, bOffset + col * k, c, cOffset + row * n + col, k, n);
+                }
+                for (; col < colEnd; col++) {
+                    c[cOffset + row * n + col] += dot(a, aOffset + row * k, b, bOffset + col * k, k);
+                    c[cOffset + (row + 1) * n + col] += dot(a, aOffset + (row + 1) * k, b, bOffset + col * k, k);
+                }
+            }
+
+            for (; row < m; row++) {
+                for (int col = col0; col < colEnd; col++) {
+                    c[cOffset + row * n + col] += dot(a, aOffset + row * k, b, bOffset + col * k, k);
+                }
+            }
+        }
+    }
+
+    public static void sparseGemm(int[] rowStarts, int[] columns, double[] values,
+                                  double[] b, double[] c, int m, int n) {
+        for (int row = 0; row < m; row++) {
+            for (int p = rowStarts[row]; p < rowStarts[row + 1]; p++) {
+                axpy(values[p], b, columns[p] * n, c, row * n, n);
+            }
+        }
+    }
+
+    public static void sparseGemmTransA(int[] rowStarts, int[] columns, double[] values,
+                                        double[] b, double[] c, int m, int n) {
+        for (int row = 0; row < m; row++) {
+            for (int p = rowStarts[row]; p < rowStarts[row + 1]; p++) {
+                axpy(values[p], b, row * n, c, columns[p] * n, n);
+            }
+        }
+    }
+
+    public static void im2col(double[] image, int imageOffset, int size, int channels, int kernel,
+                              double[] columns, int columnsOffset) {
+        int outputSize = size - kernel + 1;
+        int index = columnsOffset;
+        for (int c = 0; c < channels; c++) {
+            for (int ky = 0; ky < kernel; ky++) {
+                for (int kx = 0; kx < kernel; kx++) {
+                    int source = imageOffset + (c * size + ky) * size + kx;
+                    for (int y = 0; y < outputSize; y++) {
+                        System.arraycopy(image, source + y * size, columns, index, outputSize);
+                        index += outputSize;
+                    }
+                }
+            }
+        }
+    }
+
+    public static void col2im(double[] columns, int columnsOffset, int size, int channels, int kernel,
+                              double[] image, int imageOffset) {
+        int outputSize = size - kernel + 1;
+        int index = columnsOffset;
+        for (int c = 0; c < channels; c++) {
+            for (int ky = 0; ky < kernel; ky++) {
+                for (int kx = 0; kx < kernel; kx++) {
+                    int target = imageOffset + (c * size + ky) * size + kx;
+                    for (int y = 0; y < outputSize; y++) {
+                        axpy(1.0, columns, index, image, target + y * size, outputSize);
+                        index += outputSize;
+                    }
+                }
+            }
+        }
+    }
+
+    public static void maxPool(double[] input, int inputOffset, int size, int channels, int pool,
+                               double[] output, int outputOffset, int[] indices) {
+        int outputSize = size / pool;
+        int index = outputOffset;
+        for (int c = 0; c < channels; c++) {
+            int plane = inputOffset + c * size * size;
+            for (int y = 0; y < outputSize; y++) {
+                for (int x = 0; x < outputSize; x++) {
+                    int corner = plane + (y * size + x) * pool;
+                    int best = corner;
+                    for (int dy = 0; dy < pool; dy++) {
+                        for (int dx = 0; dx < pool; dx++) {
+                            int candidate = corner + dy * size + dx;
+                            if (input[candidate] > input[best]) {
+                                best = candidate;
+                            }
+                        }
+                    }
+                    output[index] = input[best];
+                    indices[index++] = best;
+                }
+            }
+        }
+    }
+
+    private static void multiplyAccumulate(double[] a, int aOffset, int rowStride, int innerStride,
+                                           double[] b, int bOffset, double[] c, int cOffset, int m, int k, int n) {
+        for (int col0 = 0; col0 < n; col0 += COL_BLOCK) {
+            int cols = Math.min(COL_BLOCK, n - col0);
+
+            for (int inner0 = 0; inner0 < k; inner0 += ROW_BLOCK) {
+                int innerEnd = Math.min(inner0 + ROW_BLOCK, k);
+                int row = 0;
+
+                for (; row + 4 <= m; row += 4) {
+                    int inner = inner0;
+                    for (; inner + 4 <= innerEnd; inner += 4) {
+                        axpyBlock4x4(a, aOffset + row * rowStride + inner * innerStride, rowStride, innerStride,
+                                     b, bOffset + inner * n + col0, c, cOffset + row * n + col0, n, cols);
+                    }
+                    for (; inner < innerEnd; inner++) {
+                        for (int r = row; r < row + 4; r++) {
+                            axpy(a[aOffset + r * rowStride + inner * innerStride], b, bOffset + inner * n + col0,
+                                 c, cOffset + r * n + col0, cols);
+                        }
+                    }
+                }
+
+                for (; row < m; row++) {
+                    for (int inner = inner0; inner < innerEnd; inner++) {
+                        axpy(a[aOffset + row * rowStride + inner * innerStride], b, bOffset + inner * n + col0,
+                             c, cOffset + row * n + col0, cols);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void axpyBlock4x4(double[] a, int aIndex, int rowStride, int innerStride,
+                                     double[] b, int bIndex, double[] c, int cIndex, int n, int cols) {
+        int r1 = aIndex + rowStride, r2 = r1 + rowStride, r3 = r2 + rowStride;
+        double a00 = a[aIndex], a01 = a[aIndex + innerStride], a02 = a[aIndex + 2 * innerStride], a03 = a[aIndex + 3 * innerStride];
+        double a10 = a[r1], a11 = a[r1 + innerStride], a12 = a[r1 + 2 * innerStride], a13 = a[r1 + 3 * innerStride];
+        double a20 = a[r2], a21 = a[r2 + innerStride], a22 = a[r2 + 2 * innerStride], a23 = a[r2 + 3 * innerStride];
+        double a30 = a[r3], a31 = a[r3 + innerStride], a32 = a[r3 + 2 * innerStride], a33 = a[r3 + 3 * innerStride];
+        int b1 = bIndex + n, b2 = b1 + n, b3 = b2 + n;
+        int c1 = cIndex + n, c2 = c1 + n, c3 = c2 + n;
+
+        for (int j = 0; j < cols; j++) {
+            double x0 = b[bIndex + j], x1 = b[b1 + j], x2 = b[b2 + j], x3 = b[b3 + j];
+            c[cIndex + j] += a00 * x0 + a01 * x1 + a02 * x2 + a03 * x3;
+            c[c1 + j] += a10 * x0 + a11 * x1 + a12 * x2 + a13 * x3;
+            c[c2 + j] += a20 * x0 + a21 * x1 + a22 * x2 + a23 * x3;
+            c[c3 + j] += a30 * x0 + a31 * x1 + a32 * x2 + a33 * x3;
+        }
+    }
+
+    private static void dotBlock2x4(double[] a, int aIndex, double[] b, int bIndex,
+                                    double[] c, int cIndex, int k, int n) {
+        int a1 = aIndex + k;
+        int b1 = bIndex + k, b2 = b1 + k, b3 = b2 + k;
+        double s00 = 0, s01 = 0, s02 = 0, s03 = 0;
+        double s10 = 0, s11 = 0, s12 = 0, s13 = 0;
+
+        for (int i = 0; i < k; i++) {
+            double x0 = a[aIndex + i], x1 = a[a1 + i];
+            double y0 = b[bIndex + i], y1 = b[b1 + i], y2 = b[b2 + i], y3 = b[b3 + i];
+            s00 += x0 * y0; s01 += x0 * y1; s02 += x0 * y2; s03 += x0 * y3;
+            s10 += x1 * y0; s11 += x1 * y1; s12 += x1 * y2; s13 += x1 * y3;
+        }
+
+        c[cIndex] += s00; c[cIndex + 1] += s01; c[cIndex + 2] += s02; c[cIndex + 3] += s03;
+        c[cIndex + n] += s10; c[cIndex + n + 1] += s11; c[cIndex + n + 2] += s12; c[cIndex + n + 3] += s13;
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            return VECTOR.dot(a, aOffset, b, bOffset, length);
+        }
+        float sum0 = 0.0f, sum1 = 0.0f, sum2 = 0.0f, sum3 = 0.0f;
+        int i = 0;
+        int unrolled = length & ~3;
+
+        for (; i < unrolled; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    public static void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        if (VECTOR != null && length >= VECTOR_MIN_LENGTH) {
+            VECTOR.axpy(alpha, x, xOffset, y, yOffset, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    public static void gemm(float[] a, float[] b, float[] c, int m, int k, int n) {
+        multiplyAccumulate(a, k, 1, b, c, m, k, n);
+    }
+
+    public static void gemmTransA(float[] a, float[] b, float[] c, int m, int k, int n) {
+        multiplyAccumulate(a, 1, m, b, c, m, k, n);
+    }
+
+    public static void gemmTransB(float[] a, float[] b, float[] c, int m, int k, int n) {
+        for (int col0 = 0; col0 < n; col0 += ROW_BLOCK) {
+            int colEnd = Math.min(col0 + ROW_BLOCK, n);
+            int row = 0;
+
+            for (; row + 2 <= m; row += 2) {
+                int col = col0;
+                for (; col + 4 <= colEnd; col += 4) {
+                    dotBlock2x4(a, row * k, b, col * k, c, row * n + col, k, n);
+                }
+                for (; col < colEnd; col++) {
+                    c[row * n + col] += dot(a, row * k, b, col * k, k);
+                    c[(row + 1) * n + col] += dot(a, (row + 1) * k, b, col * k, k);
+                }
+            }
+
+            for (; row < m; row++) {
+                for (int col = col0; col < colEnd; col++) {
+                    c[row * n + col] += dot(a, row * k, b, col * k, k);
+                }
+            }
+        }
+    }
+
+    public static void sparseGemm(int[] rowStarts, int[] columns, float[] values,
+                                  float[] b, float[] c, int m, int n) {
+        for (int row = 0; row < m; row++) {
+            for (int p = rowStarts[row]; p < rowStarts[row + 1]; p++) {
+                axpy(values[p], b, columns[p] * n, c, row * n, n);
+            }
+        }
+    }
+
+    public static void sparseGemmTransA(int[] rowStarts, int[] columns, float[] values,
+                                        float[] b, float[] c, int m, int n) {
+        for (int row = 0; row < m; row++) {
+            for (int p = rowStarts[row]; p < rowStarts[row + 1]; p++) {
+                axpy(values[p], b, row * n, c, columns[p] * n, n);
+            }
+        }
+    }
+
+    private static void multiplyAccumulate(float[] a, int rowStride, int innerStride,
+                                           float[] b, float[] c, int m, int k, int n) {
+        for (int col0 = 0; col0 < n; col0 += COL_BLOCK) {
+            int cols = Math.min(COL_BLOCK, n - col0);
+
+            for (int inner0 = 0; inner0 < k; inner0 += ROW_BLOCK) {
+                int innerEnd = Math.min(inner0 + ROW_BLOCK, k);
+                int row = 0;
+
+                for (; row + 4 <= m; row += 4) {
+                    int inner = inner0;
+                    for (; inner + 4 <= innerEnd; inner += 4) {
+                        axpyBlock4x4(a, row * rowStride + inner * innerStride, rowStride, innerStride,
+                                     b, inner * n + col0, c, row * n + col0, n, cols);
+                    }
+                    for (; inner < innerEnd; inner++) {
+                        for (int r = row; r < row + 4; r++) {
+                            axpy(a[r * rowStride + inner * innerStride], b, inner * n + col0, c, r * n + col0, cols);
+                        }
+                    }
+                }
+
+                for (; row < m; row++) {
+                    for (int inner = inner0; inner < innerEnd; inner++) {
+                        axpy(a[row * rowStride + inner * innerStride], b, inner * n + col0, c, row * n + col0, cols);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void axpyBlock4x4(float[] a, int aIndex, int rowStride, int innerStride,
+                                     float[] b, int bIndex, float[] c, int cIndex, int n, int cols) {
+        int r1 = aIndex + rowStride, r2 = r1 + rowStride, r3 = r2 + rowStride;
+        float a00 = a[aIndex], a01 = a[aIndex + innerStride], a02 = a[aIndex + 2 * innerStride], a03 = a[aIndex + 3 * innerStride];
+        float a10 = a[r1], a11 = a[r1 + innerStride], a12 = a[r1 + 2 * innerStride], a13 = a[r1 + 3 * innerStride];
+        float a20 = a[r2], a21 = a[r2 + innerStride], a22 = a[r2 + 2 * innerStride], a23 = a[r2 + 3 * innerStride];
+        float a30 = a[r3], a31 = a[r3 + innerStride], a32 = a[r3 + 2 * innerStride], a33 = a[r3 + 3 * innerStride];
+        int b1 = bIndex + n, b2 = b1 + n, b3 = b2 + n;
+        int c1 = cIndex + n, c2 = c1 + n, c3 = c2 + n;
+
+        for (int j = 0; j < cols; j++) {
+            float x0 = b[bIndex + j], x1 = b[b1 + j], x2 = b[b2 + j], x3 = b[b3 + j];
+            c[cIndex + j] += a00 * x0 + a01 * x1 + a02 * x2 + a03 * x3;
+            c[c1 + j] += a10 * x0 + a11 * x1 + a12 * x2 + a13 * x3;
+            c[c2 + j] += a20 * x0 + a21 * x1 + a22 * x2 + a23 * x3;
+            c[c3 + j] += a30 * x0 + a31 * x1 + a32 * x2 + a33 * x3;
+        }
+    }
+
+    private static void dotBlock2x4(float[] a, int aIndex, float[] b, int bIndex,
+                                    float[] c, int cIndex, int k, int n) {
+        int a1 = aIndex + k;
+        int b1 = bIndex + k, b2 = b1 + k, b3 = b2 + k;
+        float s00 = 0f, s01 = 0f, s02 = 0f, s03 = 0f;
+        float s10 = 0f, s11 = 0f, s12 = 0f, s13 = 0f;
+
+        for (int i = 0; i < k; i++) {
+            float x0 = a[aIndex + i], x1 = a[a1 + i];
+            float y0 = b[bIndex + i], y1 = b[b1 + i], y2 = b[b2 + i], y3 = b[b3 + i];
+            s00 += x0 * y0; s01 += x0 * y1; s02 += x0 * y2; s03 += x0 * y3;
+            s10 += x1 * y0; s11 += x1 * y1; s12 += x1 * y2; s13 += x1 * y3;
+        }
+
+        c[cIndex] += s00; c[cIndex + 1] += s01; c[cIndex + 2] += s02; c[cIndex + 3] += s03;
+        c[cIndex + n] += s10; c[cIndex + n + 1] += s11; c[cIndex + n + 2] += s12; c[cIndex + n + 3] += s13;
+    }
+}
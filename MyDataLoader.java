@@ -12,6 +12,31 @@ public class MyDataLoader {
     }
     
     public static List<Sample> loadSamplesFromDir(String dirPath) {
+        Path binaryFile = BinaryDataset.pathFor(dirPath);
+        long fingerprint = BinaryDataset.fingerprint(dirPath);
+        if (Files.isRegularFile(binaryFile)) {
+            try {
+                List<Sample> samples = BinaryDataset.read(binaryFile, fingerprint);
+                if (samples != null) {
+                    return samples;
+                }
+            } catch (IOException e) {
+                System.err.println("Nie udało się wczytać " + binaryFile + ", wczytywanie plików CSV: " + e.getMessage());
+            }
+        }
+        
+        List<Sample> samples = loadCsvSamples(dirPath);
+        if (!samples.isEmpty()) {
+            try {
+                BinaryDataset.write(binaryFile, samples, fingerprint);
+            } catch (IOException e) {
+                System.err.println("Nie udało się zapisać " + binaryFile + ": " + e.getMessage());
+            }
+        }
+        return samples;
+    }
+    
+    public static List<Sample> loadCsvSamples(String dirPath) {
         List<Sample> samples = new ArrayList<>();
         File dataDir = new File(dirPath);
         
@@ -47,7 +72,7 @@ public class MyDataLoader {
                 return;
             }
 
-            samples.add(new Sample(input, target));
+            samples.add(Sample.packed(input, target));
             
         } catch (IOException e) {
 
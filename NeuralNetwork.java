@@ -1,49 +1,146 @@
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 public class NeuralNetwork {
-    private int inputSize, hidden0Size, hidden1Size, hidden2Size, hidden3Size, hidden4Size, outputSize;
+    private static final double SPARSE_INPUT_DENSITY = 0.5;
+    private static final int MODEL_MAGIC = 0x42504C4D;
+    private static final int MODEL_VERSION = 5;
+    private static final int INFERENCE_BLOCK = 32;
+    private static final int AUGMENTATION_QUEUE_CAPACITY = 1024;
+    private static final double MIN_PROBABILITY = 1e-15;
+    private static final double FINE_TUNE_RATE_SCALE = 0.1;
+    private static final double DEFAULT_SOFT_TARGET_WEIGHT = 0.7;
+    private static final AugmentationEngine AUGMENTATION = new AugmentationEngine(28);
+    
+    private int inputSize, outputSize;
     private int[] layerSizes;
-    private double[][][] weights;
+    private Activation[] activations;
+    private double[][] weights;
     private double[][] biases;
-    private double[][][] bestWeights;
+    private double[][] bestWeights;
     private double[][] bestBiases;
+    private Precision precision = Precision.DOUBLE;
+    private float[][] weights32;
+    private float[][] biases32;
+    private float[][] bestWeights32;
+    private float[][] bestBiases32;
+    private ConvolutionalFrontEnd convolutions;
+    private double[][] convWeights;
+    private double[][] convBiases;
+    private double[][] bestConvWeights;
+    private double[][] bestConvBiases;
+    private boolean[][] pruningMasks;
+    private double sparseDensityThreshold = 0.3;
+    private NeuralNetwork teacher;
+    private double temperature = 1.0;
+    private double softTargetWeight = DEFAULT_SOFT_TARGET_WEIGHT;
     
     private double learningRate;
     private double dropoutRate = 0.0;
-    private boolean isTraining = false;
+    private int batchSize = 1;
+    private int threadCount = 1;
+    private AugmentationCache augmentationCache;
+    private int augmentationThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private int minAugmentations = 10;
+    private int maxAugmentations = 15;
+    private boolean hogwild = false;
+    private Optimizer optimizer = Optimizer.sgd();
+    private OutputHead outputHead = OutputHead.LINEAR;
     
     private int patience = 25;
     private double bestValidationError = Double.MAX_VALUE;
-    private int epochsSinceImprovement = 0;
+    private int bestEpoch = -1;
+    private int validationInterval = 1;
+    private int validationThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private ExecutorService validationExecutor;
+    private PendingValidation pendingValidation;
+    private ModelSnapshot spareSnapshot;
+    private volatile ModelSnapshot inference;
     private double validationSplit = 0.2;
     private double initialLearningRate = 0.0001;
     private double peakLearningRate = 0.003;
     private int warmupEpochs = 15;
+    
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<>();
 
-    public NeuralNetwork(int inputSize, int hidden0Size, int hidden1Size, int hidden2Size, 
-                         int hidden3Size, int hidden4Size, int outputSize, double learningRate) {
+    public NeuralNetwork(int inputSize, List<Layer> hiddenLayers, int outputSize, double learningRate) {
+        this(inputSize, (ConvolutionalFrontEnd) null, hiddenLayers, outputSize, learningRate);
+    }
+    
+    public NeuralNetwork(int imageSize, List<ConvLayer> convolutionLayers, List<Layer> hiddenLayers, 
+                         int outputSize, double learningRate) {
+        this(imageSize * imageSize, new ConvolutionalFrontEnd(imageSize, convolutionLayers), 
+             hiddenLayers, outputSize, learningRate);
+    }
+    
+    private NeuralNetwork(int inputSize, ConvolutionalFrontEnd convolutions, List<Layer> hiddenLayers, 
+                          int outputSize, double learningRate) {
+        if (inputSize <= 0 || outputSize <= 0) {
+            throw new IllegalArgumentException("Rozmiar wejścia i wyjścia musi być dodatni");
+        }
         this.inputSize = inputSize;
-        this.hidden0Size = hidden0Size;
-        this.hidden1Size = hidden1Size;
-        this.hidden2Size = hidden2Size;
-        this.hidden3Size = hidden3Size;
-        this.hidden4Size = hidden4Size;
         this.outputSize = outputSize;
         this.learningRate = learningRate;
+        this.convolutions = convolutions;
         
-        this.layerSizes = new int[]{inputSize, hidden0Size, hidden1Size, hidden2Size, hidden3Size, hidden4Size, outputSize};
+        int numLayers = hiddenLayers.size() + 1;
+        this.layerSizes = new int[numLayers + 1];
+        this.activations = new Activation[numLayers];
+        layerSizes[0] = convolutions != null ? convolutions.outputSize() : inputSize;
+        for (int layer = 0; layer < hiddenLayers.size(); layer++) {
+            layerSizes[layer + 1] = hiddenLayers.get(layer).getSize();
+            activations[layer] = hiddenLayers.get(layer).getActivation();
+        }
+        layerSizes[numLayers] = outputSize;
+        activations[numLayers - 1] = Activation.LINEAR;
         
-        int numLayers = layerSizes.length - 1;
-        this.weights = new double[numLayers][][];
+        this.weights = new double[numLayers][];
         this.biases = new double[numLayers][];
+        if (convolutions != null) {
+            this.convWeights = new double[convolutions.layerCount()][];
+            this.convBiases = new double[convolutions.layerCount()][];
+        }
         
         initializeWeightsAndBiases();
+        publishInference();
     }
     
     public NeuralNetwork() {
-        this(784, 512, 256, 128, 32, 16, 3, 0.0001);
+        this(784, defaultLayers(), 3, 0.0001);
+    }
+    
+    public static List<Layer> defaultLayers() {
+        return Arrays.asList(new Layer(512, Activation.SIGMOID), new Layer(256, Activation.SIGMOID),
+                             new Layer(128, Activation.SIGMOID), new Layer(32, Activation.SIGMOID),
+                             new Layer(16, Activation.SIGMOID));
+    }
+    
+    public static List<Layer> compactLayers() {
+        return Arrays.asList(new Layer(128, Activation.RELU), new Layer(32, Activation.RELU));
+    }
+    
+    public static List<ConvLayer> lenetConvolutions() {
+        return Arrays.asList(new ConvLayer(6, 5, Activation.RELU, 2), new ConvLayer(12, 5, Activation.RELU, 2));
+    }
+    
+    public static List<Layer> lenetLayers() {
+        return Collections.singletonList(new Layer(32, Activation.RELU));
+    }
+    
+    private static Activation[] defaultActivations(int numLayers) {
+        Activation[] activations = new Activation[numLayers];
+        Arrays.fill(activations, Activation.SIGMOID);
+        activations[numLayers - 1] = Activation.LINEAR;
+        return activations;
     }
     
     public void setDropoutRate(double rate) {
@@ -51,6 +148,113 @@ public class NeuralNetwork {
         this.dropoutRate = rate;
     }
 
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Rozmiar mini-batcha musi być dodatni");
+        this.batchSize = batchSize;
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) throw new IllegalArgumentException("Liczba wątków musi być dodatnia");
+        this.threadCount = threadCount;
+    }
+
+    public void setAugmentationThreads(int augmentationThreads) {
+        if (augmentationThreads < 1) throw new IllegalArgumentException("Liczba wątków augmentacji musi być dodatnia");
+        this.augmentationThreads = augmentationThreads;
+    }
+
+    public void setOptimizer(Optimizer optimizer) {
+        if (optimizer == null) {
+            throw new IllegalArgumentException("Optymalizator nie może być pusty");
+        }
+        this.optimizer = optimizer;
+    }
+    
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+    
+    public void setOutputHead(OutputHead outputHead) {
+        if (outputHead == null) {
+            throw new IllegalArgumentException("Warstwa wyjściowa nie może być pusta");
+        }
+        finishValidation();
+        this.outputHead = outputHead;
+        publishInference();
+    }
+    
+    public OutputHead getOutputHead() {
+        return outputHead;
+    }
+    
+    public void setValidationInterval(int validationInterval) {
+        if (validationInterval < 1) {
+            throw new IllegalArgumentException("Interwał walidacji musi być dodatni");
+        }
+        this.validationInterval = validationInterval;
+    }
+    
+    public void setValidationThreads(int validationThreads) {
+        if (validationThreads < 1) {
+            throw new IllegalArgumentException("Liczba wątków walidacji musi być dodatnia");
+        }
+        finishValidation();
+        this.validationThreads = validationThreads;
+    }
+    
+    public void setAugmentationsPerSample(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Nieprawidłowy zakres augmentacji: " + min + "-" + max);
+        }
+        this.minAugmentations = min;
+        this.maxAugmentations = max;
+    }
+    
+    public void setAugmentationCache(AugmentationCache augmentationCache) {
+        this.augmentationCache = augmentationCache;
+    }
+
+    public void setPrecision(Precision precision) {
+        if (precision == this.precision) return;
+        if (convolutions != null) {
+            throw new IllegalStateException("Warstwy konwolucyjne obsługują tylko precyzję " + Precision.DOUBLE);
+        }
+        finishValidation();
+        
+        if (precision == Precision.FLOAT) {
+            weights32 = toFloat(weights);
+            biases32 = toFloat(biases);
+            bestWeights32 = bestWeights != null ? toFloat(bestWeights) : null;
+            bestBiases32 = bestBiases != null ? toFloat(bestBiases) : null;
+            weights = biases = bestWeights = bestBiases = null;
+        } else {
+            weights = toDouble(weights32);
+            biases = toDouble(biases32);
+            bestWeights = bestWeights32 != null ? toDouble(bestWeights32) : null;
+            bestBiases = bestBiases32 != null ? toDouble(bestBiases32) : null;
+            weights32 = biases32 = bestWeights32 = bestBiases32 = null;
+        }
+        
+        this.precision = precision;
+        publishInference();
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    public void setSparseDensityThreshold(double threshold) {
+        if (threshold < 0.0 || threshold > 1.0) {
+            throw new IllegalArgumentException("Próg gęstości musi być pomiędzy 0 a 1: " + threshold);
+        }
+        this.sparseDensityThreshold = threshold;
+        publishInference();
+    }
+
+    public void setHogwild(boolean hogwild) {
+        this.hogwild = hogwild;
+    }
+
     public void setPatience(int patience) {
         this.patience = patience;
     }
@@ -79,59 +283,84 @@ public class NeuralNetwork {
             int inputNeurons = layerSizes[layer];
             int outputNeurons = layerSizes[layer + 1];
             
-            weights[layer] = new double[inputNeurons][outputNeurons];
+            weights[layer] = new double[inputNeurons * outputNeurons];
             biases[layer] = new double[outputNeurons];
             
-            double limit = Math.sqrt(6.0 / (inputNeurons + outputNeurons));
+            double limit = activations[layer].initializationLimit(inputNeurons, outputNeurons);
             
-            for (int i = 0; i < inputNeurons; i++) {
-                for (int j = 0; j < outputNeurons; j++) {
-                    weights[layer][i][j] = ThreadLocalRandom.current().nextDouble(-limit, limit);
-                }
+            for (int i = 0; i < inputNeurons * outputNeurons; i++) {
+                weights[layer][i] = ThreadLocalRandom.current().nextDouble(-limit, limit);
             }
             
             for (int j = 0; j < outputNeurons; j++) {
                 biases[layer][j] = ThreadLocalRandom.current().nextDouble(-0.1, 0.1);
             }
         }
+        
+        if (convolutions != null) {
+            convolutions.initialize(convWeights, convBiases);
+        }
     }
     
-    private double sigmoid(double x) {
-        return 1.0 / (1.0 + Math.exp(-x));
+    private Workspace workspace() {
+        return workspace(layerSizes);
     }
     
-    private double[][] forwardPass(double[] input) {
+    private Workspace workspace(int[] sizes) {
+        Workspace workspace = workspaces.get();
+        if (workspace == null || !workspace.fits(sizes)) {
+            workspace = new Workspace(sizes);
+            workspaces.set(workspace);
+        }
+        return workspace;
+    }
+    
+    private double[][] forwardPass(double[] input, Workspace workspace) {
         int numLayers = layerSizes.length;
-        double[][] layerOutputs = new double[numLayers][];
+        double[][] layerOutputs = workspace.activations;
         
         layerOutputs[0] = input;
         
         for (int layer = 0; layer < numLayers - 1; layer++) {
             int currentLayerSize = layerSizes[layer];
             int nextLayerSize = layerSizes[layer + 1];
-            layerOutputs[layer + 1] = new double[nextLayerSize];
+            double[] layerInput = layerOutputs[layer];
+            double[] layerOutput = layerOutputs[layer + 1];
+            System.arraycopy(biases[layer], 0, layerOutput, 0, nextLayerSize);
+            int activeCount = layer == 0 ? findActiveInputs(layerInput, workspace.activeInputs) : -1;
             
-            for (int j = 0; j < nextLayerSize; j++) {
-                double sum = biases[layer][j];
-                
+            if (activeCount >= 0) {
+                for (int a = 0; a < activeCount; a++) {
+                    int i = workspace.activeInputs[a];
+                    MatrixKernels.axpy(layerInput[i], weights[layer], i * nextLayerSize, 
+                                       layerOutput, 0, nextLayerSize);
+                }
+            } else {
                 for (int i = 0; i < currentLayerSize; i++) {
-                    sum += layerOutputs[layer][i] * weights[layer][i][j];
+                    MatrixKernels.axpy(layerInput[i], weights[layer], i * nextLayerSize, 
+                                       layerOutput, 0, nextLayerSize);
                 }
-                
-                boolean isOutputLayer = (layer == numLayers - 2);
-                
-                if (!isOutputLayer) {
-                    layerOutputs[layer + 1][j] = sigmoid(sum);
-                    
-                    if (isTraining && dropoutRate > 0) {
-                        if (ThreadLocalRandom.current().nextDouble() < dropoutRate) {
-                            layerOutputs[layer + 1][j] = 0;
-                        } else {
-                            layerOutputs[layer + 1][j] /= (1.0 - dropoutRate);
-                        }
+            }
+            
+            if (layer == numLayers - 2) {
+                if (outputHead == OutputHead.SOFTMAX) {
+                    if (isTempered()) {
+                        temperedSoftmax(layerOutput, workspace.temperedOutputs, 0, nextLayerSize);
+                    }
+                    MatrixKernels.softmax(layerOutput, 0, nextLayerSize);
+                }
+                break;
+            }
+            
+            activations[layer].apply(layerOutput, 0, nextLayerSize);
+            
+            if (dropoutRate > 0) {
+                for (int j = 0; j < nextLayerSize; j++) {
+                    if (ThreadLocalRandom.current().nextDouble() < dropoutRate) {
+                        layerOutput[j] = 0;
+                    } else {
+                        layerOutput[j] /= (1.0 - dropoutRate);
                     }
-                } else {
-                    layerOutputs[layer + 1][j] = sum;
                 }
             }
         }
@@ -139,252 +368,302 @@ public class NeuralNetwork {
         return layerOutputs;
     }
     
-    private void saveModelState() {
-        int numLayers = layerSizes.length - 1;
-        bestWeights = new double[numLayers][][];
-        bestBiases = new double[numLayers][];
+    private float[][] forwardPass32(double[] input, Workspace workspace) {
+        int numLayers = layerSizes.length;
+        float[][] layerOutputs = workspace.activations32;
+        int activeCount = findActiveInputs(input, workspace.activeInputs);
         
-        for (int layer = 0; layer < numLayers; layer++) {
-            int inputNeurons = layerSizes[layer];
-            int outputNeurons = layerSizes[layer + 1];
-            
-            bestWeights[layer] = new double[inputNeurons][outputNeurons];
-            bestBiases[layer] = new double[outputNeurons];
+        for (int i = 0; i < inputSize; i++) {
+            layerOutputs[0][i] = (float) input[i];
+        }
+        
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            int currentLayerSize = layerSizes[layer];
+            int nextLayerSize = layerSizes[layer + 1];
+            float[] layerInput = layerOutputs[layer];
+            float[] layerOutput = layerOutputs[layer + 1];
+            System.arraycopy(biases32[layer], 0, layerOutput, 0, nextLayerSize);
             
-            for (int i = 0; i < inputNeurons; i++) {
-                for (int j = 0; j < outputNeurons; j++) {
-                    bestWeights[layer][i][j] = weights[layer][i][j];
+            if (layer == 0 && activeCount >= 0) {
+                for (int a = 0; a < activeCount; a++) {
+                    int i = workspace.activeInputs[a];
+                    MatrixKernels.axpy(layerInput[i], weights32[layer], i * nextLayerSize, 
+                                       layerOutput, 0, nextLayerSize);
+                }
+            } else {
+                for (int i = 0; i < currentLayerSize; i++) {
+                    MatrixKernels.axpy(layerInput[i], weights32[layer], i * nextLayerSize, 
+                                       layerOutput, 0, nextLayerSize);
                 }
             }
             
-            for (int j = 0; j < outputNeurons; j++) {
-                bestBiases[layer][j] = biases[layer][j];
-            }
-        }
-    }
-
-    public void restoreBestModel() {
-        if (bestWeights == null) return;
-        
-        int numLayers = layerSizes.length - 1;
-        
-        for (int layer = 0; layer < numLayers; layer++) {
-            int inputNeurons = layerSizes[layer];
-            int outputNeurons = layerSizes[layer + 1];
-            
-            for (int i = 0; i < inputNeurons; i++) {
-                for (int j = 0; j < outputNeurons; j++) {
-                    weights[layer][i][j] = bestWeights[layer][i][j];
+            if (layer == numLayers - 2) {
+                if (outputHead == OutputHead.SOFTMAX) {
+                    if (isTempered()) {
+                        temperedSoftmax(layerOutput, workspace.temperedOutputs32, 0, nextLayerSize);
+                    }
+                    MatrixKernels.softmax(layerOutput, 0, nextLayerSize);
                 }
+                break;
             }
             
-            for (int j = 0; j < outputNeurons; j++) {
-                biases[layer][j] = bestBiases[layer][j];
+            activations[layer].apply(layerOutput, 0, nextLayerSize);
+            
+            if (dropoutRate > 0) {
+                for (int j = 0; j < nextLayerSize; j++) {
+                    if (ThreadLocalRandom.current().nextDouble() < dropoutRate) {
+                        layerOutput[j] = 0;
+                    } else {
+                        layerOutput[j] /= (float)(1.0 - dropoutRate);
+                    }
+                }
             }
         }
+        
+        return layerOutputs;
     }
     
-    private double evaluateError(List<Sample> samples) {
-        double totalError = 0.0;
+    private static int findActiveInputs(double[] input, int[] activeInputs) {
+        int limit = (int)(input.length * SPARSE_INPUT_DENSITY);
+        int count = 0;
         
-        for (Sample sample : samples) {
-            double[][] outputs = forwardPass(sample.getInput());
-            double[] finalOutputs = outputs[outputs.length - 1];
-
-            for (int k = 0; k < outputSize; k++) {
-                totalError += Math.pow(sample.getTarget()[k] - finalOutputs[k], 2);
+        for (int i = 0; i < input.length; i++) {
+            if (input[i] != 0.0) {
+                if (count == limit) {
+                    return -1;
+                }
+                activeInputs[count++] = i;
             }
         }
         
-        return totalError / (samples.size() * outputSize);
+        return count;
     }
     
-    private Sample augmentSample(Sample sample) {
-        double[] originalInput = sample.getInput();
-        double[] augmentedInput = originalInput.clone();
-        int pixelSize = 28;
-        
-        int transformCount = ThreadLocalRandom.current().nextInt(2, 4);
-        for (int t = 0; t < transformCount; t++) {
-            int transformType = ThreadLocalRandom.current().nextInt(5);
-            
-            switch (transformType) {
-                case 0: augmentedInput = shiftImage(augmentedInput, pixelSize); break;
-                case 1: augmentedInput = erasePatches(augmentedInput, pixelSize); break;
-                case 2: augmentedInput = rotateImage(augmentedInput, pixelSize); break;
-                case 3: augmentedInput = scaleImage(augmentedInput, pixelSize); break;
-                case 4: augmentedInput = elasticDistortion(augmentedInput, pixelSize); break;
-            }
+    private ModelSnapshot takeSnapshot() {
+        ModelSnapshot snapshot = spareSnapshot != null ? spareSnapshot : new ModelSnapshot();
+        spareSnapshot = null;
+        describeModel(snapshot);
+        if (precision == Precision.FLOAT) {
+            snapshot.weights32 = copyInto(weights32, snapshot.weights32);
+            snapshot.biases32 = copyInto(biases32, snapshot.biases32);
+        } else {
+            snapshot.weights = copyInto(weights, snapshot.weights);
+            snapshot.biases = copyInto(biases, snapshot.biases);
         }
-        
-        augmentedInput = applyRandomNoise(augmentedInput);
-        
-        return new Sample(augmentedInput, sample.getTarget());
+        if (convolutions != null) {
+            snapshot.convWeights = copyInto(convWeights, snapshot.convWeights);
+            snapshot.convBiases = copyInto(convBiases, snapshot.convBiases);
+        }
+        return snapshot;
     }
     
-    private double[] applyRandomNoise(double[] input) {
-        for (int i = 0; i < input.length; i++) {
-            input[i] += ThreadLocalRandom.current().nextDouble(-0.05, 0.05);
-            input[i] = Math.min(1.0, Math.max(0.0, input[i]));
+    private void describeModel(ModelSnapshot snapshot) {
+        snapshot.layerSizes = layerSizes;
+        snapshot.activations = activations;
+        snapshot.outputHead = outputHead;
+        snapshot.convolutions = convolutions;
+        snapshot.precision = precision;
+        snapshot.inputSize = inputSize;
+        snapshot.outputSize = outputSize;
+    }
+    
+    private void publishInference() {
+        ModelSnapshot snapshot = new ModelSnapshot();
+        describeModel(snapshot);
+        if (precision == Precision.FLOAT) {
+            snapshot.weights32 = copyInto(weights32, null);
+            snapshot.biases32 = copyInto(biases32, null);
+            snapshot.sparseWeights = compressSparseLayers(snapshot.weights32);
+        } else {
+            snapshot.weights = copyInto(weights, null);
+            snapshot.biases = copyInto(biases, null);
+            snapshot.sparseWeights = compressSparseLayers(snapshot.weights);
         }
-        return input;
+        if (convolutions != null) {
+            snapshot.convWeights = copyInto(convWeights, null);
+            snapshot.convBiases = copyInto(convBiases, null);
+        }
+        inference = snapshot;
     }
     
-    private double[] shiftImage(double[] input, int size) {
-        double[] result = new double[input.length];
-        int shiftX = ThreadLocalRandom.current().nextInt(-3, 4);
-        int shiftY = ThreadLocalRandom.current().nextInt(-3, 4);
-        
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                int sourceX = x - shiftX;
-                int sourceY = y - shiftY;
-                
-                if (sourceX >= 0 && sourceX < size && sourceY >= 0 && sourceY < size) {
-                    result[y * size + x] = input[sourceY * size + sourceX];
-                }
+    private void adoptSnapshot(ModelSnapshot snapshot) {
+        double[][] previousWeights = bestWeights;
+        double[][] previousBiases = bestBiases;
+        float[][] previousWeights32 = bestWeights32;
+        float[][] previousBiases32 = bestBiases32;
+        if (precision == Precision.FLOAT) {
+            bestWeights32 = snapshot.weights32;
+            bestBiases32 = snapshot.biases32;
+            snapshot.weights32 = previousWeights32;
+            snapshot.biases32 = previousBiases32;
+        } else {
+            bestWeights = snapshot.weights;
+            bestBiases = snapshot.biases;
+            snapshot.weights = previousWeights;
+            snapshot.biases = previousBiases;
+        }
+        if (convolutions != null) {
+            double[][] previousConvWeights = bestConvWeights;
+            double[][] previousConvBiases = bestConvBiases;
+            bestConvWeights = snapshot.convWeights;
+            bestConvBiases = snapshot.convBiases;
+            snapshot.convWeights = previousConvWeights;
+            snapshot.convBiases = previousConvBiases;
+        }
+        spareSnapshot = snapshot;
+    }
+
+    public void restoreBestModel() {
+        finishValidation();
+        if (precision == Precision.FLOAT) {
+            if (bestWeights32 != null) {
+                copyInto(bestWeights32, weights32);
+                copyInto(bestBiases32, biases32);
             }
+            publishInference();
+            return;
         }
         
-        return result;
+        if (bestWeights != null) {
+            int numLayers = layerSizes.length - 1;
+            
+            for (int layer = 0; layer < numLayers; layer++) {
+                System.arraycopy(bestWeights[layer], 0, weights[layer], 0, weights[layer].length);
+                System.arraycopy(bestBiases[layer], 0, biases[layer], 0, biases[layer].length);
+            }
+            if (convolutions != null && bestConvWeights != null) {
+                copyInto(bestConvWeights, convWeights);
+                copyInto(bestConvBiases, convBiases);
+            }
+        }
+        publishInference();
     }
     
-    private double[] erasePatches(double[] input, int size) {
-        double[] result = input.clone();
-        int numErasures = ThreadLocalRandom.current().nextInt(1, 4);
-        
-        for (int e = 0; e < numErasures; e++) {
-            int eraseX = ThreadLocalRandom.current().nextInt(size);
-            int eraseY = ThreadLocalRandom.current().nextInt(size);
-            int eraseSize = ThreadLocalRandom.current().nextInt(1, 4);
-            boolean eraseToWhite = ThreadLocalRandom.current().nextBoolean();
-            
-            for (int dy = -eraseSize; dy <= eraseSize; dy++) {
-                for (int dx = -eraseSize; dx <= eraseSize; dx++) {
-                    int y = eraseY + dy;
-                    int x = eraseX + dx;
-                    
-                    if (y >= 0 && y < size && x >= 0 && x < size) {
-                        result[y * size + x] = eraseToWhite ? 1.0 : 0.0;
-                    }
-                }
+    private static double[][] copyInto(double[][] source, double[][] target) {
+        if (target == null || target.length != source.length) {
+            target = new double[source.length][];
+        }
+        for (int layer = 0; layer < source.length; layer++) {
+            if (target[layer] == null || target[layer].length != source[layer].length) {
+                target[layer] = new double[source[layer].length];
             }
+            System.arraycopy(source[layer], 0, target[layer], 0, source[layer].length);
         }
-        
-        return result;
+        return target;
     }
     
-    private double[] rotateImage(double[] input, int size) {
-        double[] result = new double[input.length];
-        Arrays.fill(result, 0.0);
-        
-        double centerX = size / 2.0;
-        double centerY = size / 2.0;
-        double angle = ThreadLocalRandom.current().nextDouble(-0.25, 0.25);
-        
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                double xOrigin = x - centerX;
-                double yOrigin = y - centerY;
-                
-                int srcX = (int)(xOrigin * Math.cos(angle) - yOrigin * Math.sin(angle) + centerX);
-                int srcY = (int)(xOrigin * Math.sin(angle) + yOrigin * Math.cos(angle) + centerY);
-                
-                if (srcX >= 0 && srcX < size && srcY >= 0 && srcY < size) {
-                    result[y * size + x] = input[srcY * size + srcX];
-                }
+    private static float[][] copyInto(float[][] source, float[][] target) {
+        if (target == null || target.length != source.length) {
+            target = new float[source.length][];
+        }
+        for (int layer = 0; layer < source.length; layer++) {
+            if (target[layer] == null || target[layer].length != source[layer].length) {
+                target[layer] = new float[source[layer].length];
             }
+            System.arraycopy(source[layer], 0, target[layer], 0, source[layer].length);
         }
-        
-        return result;
+        return target;
     }
     
-    private double[] scaleImage(double[] input, int size) {
-        double[] result = new double[input.length];
-        Arrays.fill(result, 0.0);
-        
-        double centerX = size / 2.0;
-        double centerY = size / 2.0;
-        double scaleFactor = ThreadLocalRandom.current().nextDouble(0.8, 1.2);
+    private double outputLoss(double target, double output) {
+        if (outputHead == OutputHead.SOFTMAX) {
+            return target > 0.0 ? -target * Math.log(Math.max(output, MIN_PROBABILITY)) : 0.0;
+        }
+        double error = target - output;
+        return error * error;
+    }
+    
+    private boolean shouldValidate(int epoch, int epochs) {
+        return (epoch + 1) % validationInterval == 0 || epoch == epochs - 1;
+    }
+    
+    private void startValidation(List<Sample> validationData, int epoch) {
+        if (validationData.isEmpty()) {
+            return;
+        }
+        if (validationExecutor == null) {
+            validationExecutor = Executors.newFixedThreadPool(validationThreads, task -> {
+                Thread thread = new Thread(task, "walidacja");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
         
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                double srcX = (x - centerX) / scaleFactor + centerX;
-                double srcY = (y - centerY) / scaleFactor + centerY;
-                
-                if (srcX >= 0 && srcX < size && srcY >= 0 && srcY < size) {
-                    int x1 = (int)Math.floor(srcX);
-                    int y1 = (int)Math.floor(srcY);
-                    int x2 = Math.min(x1 + 1, size - 1);
-                    int y2 = Math.min(y1 + 1, size - 1);
-                    
-                    double xWeight = srcX - x1;
-                    double yWeight = srcY - y1;
-                    
-                    double val = input[y1 * size + x1] * (1 - xWeight) * (1 - yWeight) +
-                                (x2 < size ? input[y1 * size + x2] : 0) * xWeight * (1 - yWeight) +
-                                (y2 < size ? input[y2 * size + x1] : 0) * (1 - xWeight) * yWeight +
-                                (x2 < size && y2 < size ? input[y2 * size + x2] : 0) * xWeight * yWeight;
-                                
-                    result[y * size + x] = val;
+        ModelSnapshot snapshot = takeSnapshot();
+        int sampleCount = validationData.size();
+        int blocks = (sampleCount + INFERENCE_BLOCK - 1) / INFERENCE_BLOCK;
+        int chunk = (blocks + validationThreads - 1) / validationThreads * INFERENCE_BLOCK;
+        List<Future<Double>> parts = new ArrayList<>();
+        for (int from = 0; from < sampleCount; from += chunk) {
+            int start = from;
+            int end = Math.min(sampleCount, from + chunk);
+            parts.add(validationExecutor.submit(() -> evaluateError(snapshot, validationData, start, end)));
+        }
+        pendingValidation = new PendingValidation(epoch, snapshot, parts, sampleCount);
+    }
+    
+    private boolean completeValidation(boolean wait) {
+        PendingValidation run = pendingValidation;
+        if (run == null) {
+            return false;
+        }
+        if (!wait) {
+            for (Future<Double> part : run.parts) {
+                if (!part.isDone()) {
+                    return false;
                 }
             }
         }
+        pendingValidation = null;
         
-        return result;
+        double totalError = 0.0;
+        for (Future<Double> part : run.parts) {
+            totalError += getTaskResult(part);
+        }
+        double validationError = totalError / (run.sampleCount * outputSize);
+        System.out.printf("Epoka %d, błąd (walidacja): %.6f%n", run.epoch + 1, validationError);
+        return checkEarlyStopping(validationError, run.epoch, run.snapshot);
     }
     
-    private double[] elasticDistortion(double[] input, int size) {
-        double[] result = new double[input.length];
-        double[][] displacementX = new double[size][size];
-        double[][] displacementY = new double[size][size];
-        
-        int fieldSize = 7;
-        double[][] smallFieldX = new double[fieldSize][fieldSize];
-        double[][] smallFieldY = new double[fieldSize][fieldSize];
-        double elasticScale = ThreadLocalRandom.current().nextDouble(3.0, 6.0);
-        
-        for (int i = 0; i < fieldSize; i++) {
-            for (int j = 0; j < fieldSize; j++) {
-                smallFieldX[i][j] = ThreadLocalRandom.current().nextDouble(-1, 1);
-                smallFieldY[i][j] = ThreadLocalRandom.current().nextDouble(-1, 1);
-            }
+    private void finishValidation() {
+        completeValidation(true);
+        if (validationExecutor != null) {
+            validationExecutor.shutdownNow();
+            validationExecutor = null;
         }
+    }
+    
+    private double evaluateError(ModelSnapshot snapshot, List<Sample> samples, int from, int to) {
+        Workspace workspace = workspace(snapshot.layerSizes);
+        double[][] inputs = workspace.blockInputs(snapshot.inputSize);
+        double[][] outputs = workspace.blockOutputs;
+        double totalError = 0.0;
         
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                double fy = y * (fieldSize - 1.0) / size;
-                double fx = x * (fieldSize - 1.0) / size;
-                int y1 = (int)Math.floor(fy);
-                int x1 = (int)Math.floor(fx);
-                int y2 = Math.min(y1 + 1, fieldSize - 1);
-                int x2 = Math.min(x1 + 1, fieldSize - 1);
-                double yw = fy - y1;
-                double xw = fx - x1;
-                
-                displacementX[y][x] = bilinearInterpolation(smallFieldX, x1, y1, x2, y2, xw, yw) * elasticScale;
-                displacementY[y][x] = bilinearInterpolation(smallFieldY, x1, y1, x2, y2, xw, yw) * elasticScale;
+        for (int start = from; start < to; start += INFERENCE_BLOCK) {
+            int rows = Math.min(INFERENCE_BLOCK, to - start);
+            for (int row = 0; row < rows; row++) {
+                samples.get(start + row).copyInput(inputs[row], 0);
             }
-        }
-        
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                double srcX = Math.max(0, Math.min(size - 1, x + displacementX[y][x]));
-                double srcY = Math.max(0, Math.min(size - 1, y + displacementY[y][x]));
-                int sx = (int)Math.round(srcX);
-                int sy = (int)Math.round(srcY);
-                result[y * size + x] = input[sy * size + sx];
+            if (snapshot.precision == Precision.FLOAT) {
+                inferBlock32(snapshot, inputs, outputs, 0, rows, workspace);
+            } else {
+                inferBlock(snapshot, inputs, outputs, 0, rows, workspace);
+            }
+            for (int row = 0; row < rows; row++) {
+                double[] target = workspace.target(samples.get(start + row));
+                for (int k = 0; k < outputSize; k++) {
+                    totalError += outputLoss(target[k], outputs[row][k]);
+                }
             }
         }
         
-        return result;
+        return totalError;
     }
     
-    private double bilinearInterpolation(double[][] field, int x1, int y1, int x2, int y2, double xw, double yw) {
-        return field[y1][x1] * (1 - xw) * (1 - yw) +
-               field[y1][x2] * xw * (1 - yw) +
-               field[y2][x1] * (1 - xw) * yw +
-               field[y2][x2] * xw * yw;
+    private Sample augmentSample(Sample sample) {
+        double[] augmentedInput = new double[sample.getInput().length];
+        AUGMENTATION.augment(sample.getInput(), augmentedInput);
+        return new Sample(augmentedInput, sample.getTarget());
     }
     
     public void train(List<Sample> samples, int epochs) {
@@ -401,73 +680,458 @@ public class NeuralNetwork {
         splitData(samples, trainingData, validationData);
         
         bestValidationError = Double.MAX_VALUE;
-        epochsSinceImprovement = 0;
+        bestEpoch = -1;
         
-        for (int epoch = 0; epoch < epochs; epoch++) {
-            updateLearningRate(epoch);
-            List<Sample> augmentedData = createAugmentedData(trainingData, epoch);
-            double trainingError = trainEpoch(augmentedData) / (augmentedData.size() * outputSize);
-            double validationError = evaluateError(validationData);
-
-            System.out.printf("Epoka %d/%d, błąd (trening): %.6f, błąd (walidacja): %.6f%n", 
-                             epoch + 1, epochs, trainingError, validationError);
-
-            if (checkEarlyStopping(validationError, epoch)) {
-                break;
-            }
-        }
+        runEpochs(trainingData, validationData, epochs, true);
 
         restoreBestModel();
         System.out.println("Uczenie zakończone! Najlepszy błąd walidacji: " + bestValidationError);
     }
     
-    public void trainOneEpoch(List<Sample> trainingData, List<Sample> validationData, int epoch) {
-        updateLearningRate(epoch);
-        List<Sample> augmentedData = createAugmentedData(trainingData, epoch);
-        double trainingError = trainEpoch(augmentedData) / (augmentedData.size() * outputSize);
-        double validationError = evaluateError(validationData);
+    private void runEpochs(List<Sample> trainingData, List<Sample> validationData, int epochs, boolean scheduled) {
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            if (scheduled) {
+                updateLearningRate(epoch);
+            }
+            double trainingError;
+            double samplesPerSecond;
+            try (AugmentationPipeline pipeline = new AugmentationPipeline(trainingData)) {
+                printAugmentationRatio(epoch, pipeline.size(), trainingData.size());
+                long epochStart = System.nanoTime();
+                trainingError = trainEpoch(pipeline) / (pipeline.size() * outputSize);
+                samplesPerSecond = pipeline.size() / ((System.nanoTime() - epochStart) / 1e9);
+            }
 
-        System.out.print(String.format("Epoka %d/%d, błąd (trening): %.6f, błąd (walidacja): %.6f", 
-                         epoch + 1, 300, trainingError, validationError));
-        System.out.println();
+            System.out.printf("Epoka %d/%d, błąd (trening): %.6f, %.0f próbek/s%n", 
+                             epoch + 1, epochs, trainingError, samplesPerSecond);
 
-        if (checkEarlyStopping(validationError, epoch)) {
-            System.out.println("Wczesne zatrzymanie na epoce " + (epoch + 1) + 
-                             " (błąd walidacji nie poprawiał się przez " + patience + " epok)");
+            if (shouldValidate(epoch, epochs)) {
+                if (completeValidation(true)) {
+                    break;
+                }
+                startValidation(validationData, epoch);
+            } else if (completeValidation(false)) {
+                break;
+            }
         }
     }
     
-    private void printTrainingConfiguration(int totalSamples, int epochs) {
-        System.out.println("Rozpoczęcie uczenia sieci neuronowej...");
-        System.out.println("Architektura: " + getArchitectureString());
-        System.out.println("Liczba epok: " + epochs);
-        System.out.println("Rozmiar zbioru uczącego: " + totalSamples);
-        System.out.println("Learning rate: początkowy=" + initialLearningRate + ", maksymalny=" + peakLearningRate);
-        System.out.println("Rozgrzewanie: " + warmupEpochs + " epok");
-        System.out.println("Dropout rate: " + dropoutRate);
-        System.out.println("Patience: " + patience + " epok");
+    public void distill(NeuralNetwork teacher, List<Sample> samples, int epochs, double temperature) {
+        distill(teacher, samples, epochs, temperature, DEFAULT_SOFT_TARGET_WEIGHT);
     }
     
-    private void splitData(List<Sample> samples, List<Sample> trainingData, List<Sample> validationData) {
-        Collections.shuffle(samples);
-        int validationSize = (int)(samples.size() * validationSplit);
-        int trainingSize = samples.size() - validationSize;
+    public void distill(NeuralNetwork teacher, List<Sample> samples, int epochs, double temperature, 
+                        double softTargetWeight) {
+        if (teacher.inputSize != inputSize || teacher.outputSize != outputSize) {
+            throw new IllegalArgumentException("Nauczyciel (" + teacher.inputSize + " → " + teacher.outputSize + 
+                                               ") nie pasuje do ucznia (" + inputSize + " → " + outputSize + ")");
+        }
+        if (teacher.outputHead != outputHead) {
+            throw new IllegalArgumentException("Nauczyciel i uczeń muszą mieć tę samą warstwę wyjściową: " + 
+                                               teacher.outputHead + " ≠ " + outputHead);
+        }
+        if (temperature <= 0.0) {
+            throw new IllegalArgumentException("Temperatura musi być dodatnia: " + temperature);
+        }
+        if (temperature != 1.0 && outputHead != OutputHead.SOFTMAX) {
+            throw new IllegalArgumentException("Temperatura różna od 1 wymaga warstwy wyjściowej " + 
+                                               OutputHead.SOFTMAX + ": " + temperature);
+        }
+        if (softTargetWeight < 0.0 || softTargetWeight > 1.0) {
+            throw new IllegalArgumentException("Waga miękkich etykiet musi być pomiędzy 0 a 1: " + softTargetWeight);
+        }
+        if (samples.isEmpty()) {
+            System.err.println("Brak danych do uczenia!");
+            return;
+        }
+        teacher.finishValidation();
         
-        trainingData.addAll(samples.subList(0, trainingSize));
-        validationData.addAll(samples.subList(trainingSize, samples.size()));
+        learningRate = initialLearningRate;
+        printTrainingConfiguration(samples.size(), epochs);
+        System.out.println("Nauczyciel: " + teacher.getArchitectureString() + ", temperatura: " + temperature + 
+                           ", waga miękkich etykiet: " + softTargetWeight);
         
-        System.out.println("Rozmiar zbioru treningowego: " + trainingData.size());
-        System.out.println("Rozmiar zbioru walidacyjnego: " + validationData.size());
+        List<Sample> trainingData = new ArrayList<>();
+        List<Sample> validationData = new ArrayList<>();
+        splitData(samples, trainingData, validationData);
+        
+        bestValidationError = Double.MAX_VALUE;
+        bestEpoch = -1;
+        this.teacher = teacher;
+        this.temperature = temperature;
+        this.softTargetWeight = softTargetWeight;
+        try {
+            runEpochs(trainingData, validationData, epochs, true);
+        } finally {
+            this.teacher = null;
+        }
+        
+        restoreBestModel();
+        System.out.println("Destylacja zakończona! Najlepszy błąd walidacji: " + bestValidationError);
     }
     
-    private void updateLearningRate(int epoch) {
-        if (epoch < warmupEpochs) {
-            learningRate = initialLearningRate + 
-                          (peakLearningRate - initialLearningRate) * (epoch / (double)warmupEpochs);
-            System.out.println("Rozgrzewanie: Learning rate zwiększony do: " + learningRate);
-        } else if ((epoch - warmupEpochs) % 25 == 0 && epoch > warmupEpochs) {
-            learningRate *= 0.85;
-            System.out.println("Learning rate zmniejszony do: " + learningRate);
+    private void teach(NeuralNetwork teacher, double temperature, double[] input, Sample original, double[] target) {
+        teacher.predict(input, target);
+        original.copyTarget(target, outputSize);
+        if (temperature == 1.0) {
+            return;
+        }
+        double sum = 0.0;
+        for (int k = 0; k < outputSize; k++) {
+            target[k] = Math.exp(Math.log(Math.max(target[k], MIN_PROBABILITY)) / temperature);
+            sum += target[k];
+        }
+        for (int k = 0; k < outputSize; k++) {
+            target[k] /= sum;
+        }
+    }
+    
+    private boolean isTempered() {
+        return teacher != null && temperature != 1.0;
+    }
+    
+    private void temperedSoftmax(double[] logits, double[] tempered, int offset, int length) {
+        for (int k = offset; k < offset + length; k++) {
+            tempered[k] = logits[k] / temperature;
+        }
+        MatrixKernels.softmax(tempered, offset, length);
+    }
+    
+    private void temperedSoftmax(float[] logits, float[] tempered, int offset, int length) {
+        for (int k = offset; k < offset + length; k++) {
+            tempered[k] = (float) (logits[k] / temperature);
+        }
+        MatrixKernels.softmax(tempered, offset, length);
+    }
+    
+    private double distillationDeltas(double[] target, double[] outputs, double[] tempered, int offset, 
+                                      double[] deltas) {
+        double hardWeight = 1.0 - softTargetWeight;
+        double loss = 0.0;
+        for (int k = 0; k < outputSize; k++) {
+            double soft = target[k];
+            double hard = target[outputSize + k];
+            deltas[offset + k] = softTargetWeight * temperature * (soft - tempered[offset + k]) + 
+                                 hardWeight * (hard - outputs[offset + k]);
+            loss += softTargetWeight * temperature * temperature * outputLoss(soft, tempered[offset + k]) + 
+                    hardWeight * outputLoss(hard, outputs[offset + k]);
+        }
+        return loss;
+    }
+    
+    private double distillationDeltas(double[] target, float[] outputs, float[] tempered, int offset, 
+                                      float[] deltas) {
+        double hardWeight = 1.0 - softTargetWeight;
+        double loss = 0.0;
+        for (int k = 0; k < outputSize; k++) {
+            double soft = target[k];
+            double hard = target[outputSize + k];
+            deltas[offset + k] = (float) (softTargetWeight * temperature * (soft - tempered[offset + k]) + 
+                                          hardWeight * (hard - outputs[offset + k]));
+            loss += softTargetWeight * temperature * temperature * outputLoss(soft, tempered[offset + k]) + 
+                    hardWeight * outputLoss(hard, outputs[offset + k]);
+        }
+        return loss;
+    }
+    
+    public void prune(List<Sample> samples, double targetSparsity, int rounds, int fineTuneEpochs) {
+        if (targetSparsity < 0.0 || targetSparsity >= 1.0) {
+            throw new IllegalArgumentException("Docelowa rzadkość musi być z przedziału [0, 1): " + targetSparsity);
+        }
+        if (rounds <= 0 || fineTuneEpochs < 0) {
+            throw new IllegalArgumentException("Nieprawidłowa liczba rund (" + rounds + ") lub epok dostrajania (" + 
+                                               fineTuneEpochs + ")");
+        }
+        finishValidation();
+        
+        List<Sample> trainingData = new ArrayList<>();
+        List<Sample> validationData = new ArrayList<>();
+        if (fineTuneEpochs > 0) {
+            if (samples.isEmpty()) {
+                System.err.println("Brak danych do uczenia!");
+                return;
+            }
+            splitData(samples, trainingData, validationData);
+        }
+        
+        for (int round = 1; round <= rounds; round++) {
+            double progress = 1.0 - (double) round / rounds;
+            pruneByMagnitude(targetSparsity * (1.0 - progress * progress * progress));
+            System.out.printf("Przycinanie %d/%d: rzadkość wag %.1f%%%n", round, rounds, getSparsity() * 100);
+            
+            if (fineTuneEpochs > 0) {
+                fineTune(trainingData, validationData, fineTuneEpochs);
+            }
+        }
+        publishInference();
+    }
+    
+    public void fineTune(List<Sample> samples, int epochs) {
+        if (samples.isEmpty()) {
+            System.err.println("Brak danych do uczenia!");
+            return;
+        }
+        finishValidation();
+        List<Sample> trainingData = new ArrayList<>();
+        List<Sample> validationData = new ArrayList<>();
+        splitData(samples, trainingData, validationData);
+        fineTune(trainingData, validationData, epochs);
+    }
+    
+    private void fineTune(List<Sample> trainingData, List<Sample> validationData, int epochs) {
+        learningRate = peakLearningRate * FINE_TUNE_RATE_SCALE;
+        bestValidationError = Double.MAX_VALUE;
+        bestEpoch = -1;
+        bestWeights = bestBiases = bestConvWeights = bestConvBiases = null;
+        bestWeights32 = bestBiases32 = null;
+        runEpochs(trainingData, validationData, epochs, false);
+        restoreBestModel();
+    }
+    
+    public void factorize(int layer, int rank) {
+        int numLayers = layerSizes.length - 1;
+        if (layer < 0 || layer >= numLayers) {
+            throw new IllegalArgumentException("Nieprawidłowy numer warstwy: " + layer + " (dostępne 0-" + 
+                                               (numLayers - 1) + ")");
+        }
+        int fromSize = layerSizes[layer];
+        int toSize = layerSizes[layer + 1];
+        if (rank <= 0 || rank >= Math.min(fromSize, toSize)) {
+            throw new IllegalArgumentException("Rząd rozkładu musi być z przedziału 1-" + 
+                                               (Math.min(fromSize, toSize) - 1) + ": " + rank);
+        }
+        finishValidation();
+        
+        double[][] layerWeights = precision == Precision.FLOAT ? toDouble(weights32) : weights;
+        double[][] layerBiases = precision == Precision.FLOAT ? toDouble(biases32) : biases;
+        double[][] factors = MatrixDecomposition.lowRank(layerWeights[layer], fromSize, toSize, rank);
+        
+        int[] sizes = new int[layerSizes.length + 1];
+        Activation[] layerActivations = new Activation[numLayers + 1];
+        double[][] factoredWeights = new double[numLayers + 1][];
+        double[][] factoredBiases = new double[numLayers + 1][];
+        boolean[][] masks = pruningMasks != null ? new boolean[numLayers + 1][] : null;
+        for (int source = 0, target = 0; source < numLayers; source++, target++) {
+            sizes[target] = layerSizes[source];
+            if (source == layer) {
+                sizes[target + 1] = rank;
+                layerActivations[target] = Activation.LINEAR;
+                factoredWeights[target] = factors[0];
+                factoredBiases[target] = new double[rank];
+                target++;
+                factoredWeights[target] = factors[1];
+            } else {
+                factoredWeights[target] = layerWeights[source];
+                if (masks != null) {
+                    masks[target] = pruningMasks[source];
+                }
+            }
+            layerActivations[target] = activations[source];
+            factoredBiases[target] = layerBiases[source];
+        }
+        sizes[numLayers + 1] = layerSizes[numLayers];
+        
+        layerSizes = sizes;
+        activations = layerActivations;
+        pruningMasks = masks;
+        if (precision == Precision.FLOAT) {
+            weights32 = toFloat(factoredWeights);
+            biases32 = toFloat(factoredBiases);
+        } else {
+            weights = factoredWeights;
+            biases = factoredBiases;
+        }
+        bestWeights = bestBiases = null;
+        bestWeights32 = bestBiases32 = null;
+        spareSnapshot = null;
+        optimizer.reset();
+        publishInference();
+    }
+    
+    public double[] singularValues(int layer) {
+        if (layer < 0 || layer >= layerSizes.length - 1) {
+            throw new IllegalArgumentException("Nieprawidłowy numer warstwy: " + layer + " (dostępne 0-" + 
+                                               (layerSizes.length - 2) + ")");
+        }
+        double[] layerWeights = precision == Precision.FLOAT ? toDouble(weights32)[layer] : weights[layer];
+        return MatrixDecomposition.singularValues(layerWeights, layerSizes[layer], layerSizes[layer + 1]);
+    }
+    
+    private void pruneByMagnitude(double sparsity) {
+        int numLayers = layerSizes.length - 1;
+        if (pruningMasks == null) {
+            pruningMasks = new boolean[numLayers][];
+        }
+        
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            int size = layerSizes[layer] * layerSizes[layer + 1];
+            double[] magnitudes = new double[size];
+            for (int i = 0; i < size; i++) {
+                magnitudes[i] = Math.abs(precision == Precision.FLOAT ? weights32[layer][i] : weights[layer][i]);
+            }
+            int pruned = (int) (sparsity * size);
+            if (pruned == 0) {
+                continue;
+            }
+            double[] sorted = magnitudes.clone();
+            Arrays.sort(sorted);
+            double threshold = sorted[pruned - 1];
+            
+            boolean[] mask = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                mask[i] = magnitudes[i] > threshold;
+            }
+            pruningMasks[layer] = mask;
+        }
+        applyPruningMasks();
+    }
+    
+    private void restorePruningMasks() {
+        int numLayers = layerSizes.length - 1;
+        pruningMasks = null;
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            int size = layerSizes[layer] * layerSizes[layer + 1];
+            boolean[] mask = new boolean[size];
+            int nonZeros = 0;
+            for (int i = 0; i < size; i++) {
+                mask[i] = precision == Precision.FLOAT ? weights32[layer][i] != 0.0f : weights[layer][i] != 0.0;
+                if (mask[i]) {
+                    nonZeros++;
+                }
+            }
+            if (nonZeros == size) {
+                continue;
+            }
+            if (pruningMasks == null) {
+                pruningMasks = new boolean[numLayers][];
+            }
+            pruningMasks[layer] = mask;
+        }
+    }
+    
+    private void applyPruningMasks() {
+        if (pruningMasks == null) {
+            return;
+        }
+        for (int layer = 0; layer < pruningMasks.length; layer++) {
+            boolean[] mask = pruningMasks[layer];
+            if (mask == null) {
+                continue;
+            }
+            for (int i = 0; i < mask.length; i++) {
+                if (!mask[i]) {
+                    if (precision == Precision.FLOAT) {
+                        weights32[layer][i] = 0.0f;
+                    } else {
+                        weights[layer][i] = 0.0;
+                    }
+                }
+            }
+        }
+    }
+    
+    public double getSparsity() {
+        long zeros = 0;
+        long total = 0;
+        for (int layer = 0; layer < layerSizes.length - 1; layer++) {
+            int size = layerSizes[layer] * layerSizes[layer + 1];
+            for (int i = 0; i < size; i++) {
+                if (precision == Precision.FLOAT ? weights32[layer][i] == 0.0f : weights[layer][i] == 0.0) {
+                    zeros++;
+                }
+            }
+            total += size;
+        }
+        return (double) zeros / total;
+    }
+    
+    private SparseMatrix[] compressSparseLayers(double[][] layerWeights) {
+        int numLayers = layerSizes.length - 1;
+        SparseMatrix[] layers = new SparseMatrix[numLayers];
+        boolean anySparse = false;
+        for (int layer = 0; layer < numLayers; layer++) {
+            double density = (double) SparseMatrix.countNonZeros(layerWeights[layer]) / layerWeights[layer].length;
+            if (density < sparseDensityThreshold) {
+                layers[layer] = SparseMatrix.compress(layerWeights[layer], layerSizes[layer], layerSizes[layer + 1]);
+                anySparse = true;
+            }
+        }
+        return anySparse ? layers : null;
+    }
+    
+    private SparseMatrix[] compressSparseLayers(float[][] layerWeights) {
+        int numLayers = layerSizes.length - 1;
+        SparseMatrix[] layers = new SparseMatrix[numLayers];
+        boolean anySparse = false;
+        for (int layer = 0; layer < numLayers; layer++) {
+            double density = (double) SparseMatrix.countNonZeros(layerWeights[layer]) / layerWeights[layer].length;
+            if (density < sparseDensityThreshold) {
+                layers[layer] = SparseMatrix.compress(layerWeights[layer], layerSizes[layer], layerSizes[layer + 1]);
+                anySparse = true;
+            }
+        }
+        return anySparse ? layers : null;
+    }
+    
+    public void trainOneEpoch(List<Sample> trainingData, List<Sample> validationData, int epoch) {
+        updateLearningRate(epoch);
+        double trainingError;
+        double samplesPerSecond;
+        try (AugmentationPipeline pipeline = new AugmentationPipeline(trainingData)) {
+            printAugmentationRatio(epoch, pipeline.size(), trainingData.size());
+            long epochStart = System.nanoTime();
+            trainingError = trainEpoch(pipeline) / (pipeline.size() * outputSize);
+            samplesPerSecond = pipeline.size() / ((System.nanoTime() - epochStart) / 1e9);
+        }
+
+        System.out.print(String.format("Epoka %d/%d, błąd (trening): %.6f, %.0f próbek/s", 
+                         epoch + 1, 300, trainingError, samplesPerSecond));
+        System.out.println();
+
+        if (shouldValidate(epoch, Integer.MAX_VALUE)) {
+            completeValidation(true);
+            startValidation(validationData, epoch);
+        } else {
+            completeValidation(false);
+        }
+    }
+    
+    private void printTrainingConfiguration(int totalSamples, int epochs) {
+        System.out.println("Rozpoczęcie uczenia sieci neuronowej...");
+        System.out.println("Architektura: " + getArchitectureString());
+        System.out.println("Liczba epok: " + epochs);
+        System.out.println("Rozmiar zbioru uczącego: " + totalSamples);
+        System.out.println("Learning rate: początkowy=" + initialLearningRate + ", maksymalny=" + peakLearningRate);
+        System.out.println("Rozgrzewanie: " + warmupEpochs + " epok");
+        System.out.println("Dropout rate: " + dropoutRate);
+        System.out.println("Rozmiar mini-batcha: " + batchSize);
+        System.out.println("Optymalizator: " + optimizer);
+        System.out.println("Warstwa wyjściowa: " + outputHead);
+        System.out.println("Liczba wątków: " + threadCount + (hogwild && optimizer.isStateless() && convolutions == null ? " (Hogwild)" : ""));
+        System.out.println("Wątki augmentacji: " + augmentationThreads);
+        System.out.println("Patience: " + patience + " epok");
+    }
+    
+    private void splitData(List<Sample> samples, List<Sample> trainingData, List<Sample> validationData) {
+        Collections.shuffle(samples);
+        int validationSize = (int)(samples.size() * validationSplit);
+        int trainingSize = samples.size() - validationSize;
+        
+        trainingData.addAll(samples.subList(0, trainingSize));
+        validationData.addAll(samples.subList(trainingSize, samples.size()));
+        
+        System.out.println("Rozmiar zbioru treningowego: " + trainingData.size());
+        System.out.println("Rozmiar zbioru walidacyjnego: " + validationData.size());
+    }
+    
+    private void updateLearningRate(int epoch) {
+        if (epoch < warmupEpochs) {
+            learningRate = initialLearningRate + 
+                          (peakLearningRate - initialLearningRate) * (epoch / (double)warmupEpochs);
+            System.out.println("Rozgrzewanie: Learning rate zwiększony do: " + learningRate);
+        } else if ((epoch - warmupEpochs) % 25 == 0 && epoch > warmupEpochs) {
+            learningRate *= 0.85;
+            System.out.println("Learning rate zmniejszony do: " + learningRate);
         }
     }
     
@@ -491,41 +1155,645 @@ public class NeuralNetwork {
             }
         }
 
+        printAugmentationRatio(epoch, augmentedData.size(), trainingData.size());
+        Collections.shuffle(augmentedData);
+        return augmentedData;
+    }
+    
+    private static void printAugmentationRatio(int epoch, int augmentedSize, int trainingSize) {
         if (epoch == 0) {
-            System.out.println("Liczba próbek augmentowanych: " + augmentedData.size());
+            System.out.println("Liczba próbek augmentowanych: " + augmentedSize);
             System.out.println("Stosunek augmentacji: " + String.format("%.1f", 
-                (double)augmentedData.size() / trainingData.size()) + "x");
+                (double)augmentedSize / trainingSize) + "x");
         }
+    }
+    
+    double trainEpoch(List<Sample> augmentedData) {
+        AtomicInteger position = new AtomicInteger();
+        return trainEpoch(() -> {
+            int index = position.getAndIncrement();
+            return index < augmentedData.size() ? augmentedData.get(index) : null;
+        });
+    }
+    
+    private double trainEpoch(SampleSource source) {
+        double rate = learningRate;
+        double totalError = 0.0;
+        boolean perSample = optimizer.isStateless() && convolutions == null && pruningMasks == null;
+        optimizer.prepare(tensorSizes());
         
-        Collections.shuffle(augmentedData);
-        return augmentedData;
+        if (hogwild && threadCount > 1 && perSample) {
+            totalError = trainEpochHogwild(source, rate);
+        } else if (batchSize == 1 && perSample) {
+            Workspace workspace = workspace();
+            Sample sample;
+            while ((sample = source.next()) != null) {
+                totalError += trainOnSample(sample, rate, workspace);
+                source.release(sample);
+            }
+        } else if (threadCount == 1) {
+            BatchWorkspace workspace = new BatchWorkspace(layerSizes, convolutions, batchSize, precision);
+            List<Sample> batch = new ArrayList<>(batchSize);
+            while (nextBatch(source, batch)) {
+                totalError += computeBatchGradients(batch, workspace);
+                applyGradients(workspace, batch.size(), rate);
+            }
+        } else {
+            totalError = trainEpochParallel(source, rate);
+        }
+        publishInference();
+        
+        return totalError;
+    }
+    
+    private int[] tensorSizes() {
+        return tensorSizes(layerSizes, convolutions);
+    }
+    
+    private static int[] tensorSizes(int[] layerSizes, ConvolutionalFrontEnd convolutions) {
+        int numLayers = layerSizes.length - 1;
+        int convLayers = convolutions != null ? convolutions.layerCount() : 0;
+        int[] sizes = new int[2 * (numLayers + convLayers)];
+        for (int layer = 0; layer < numLayers; layer++) {
+            sizes[Optimizer.weightTensor(layer)] = layerSizes[layer] * layerSizes[layer + 1];
+            sizes[Optimizer.biasTensor(layer)] = layerSizes[layer + 1];
+        }
+        for (int layer = 0; layer < convLayers; layer++) {
+            sizes[Optimizer.weightTensor(numLayers + layer)] = convolutions.weightSize(layer);
+            sizes[Optimizer.biasTensor(numLayers + layer)] = convolutions.biasSize(layer);
+        }
+        return sizes;
+    }
+    
+    private boolean nextBatch(SampleSource source, List<Sample> batch) {
+        for (Sample sample : batch) {
+            source.release(sample);
+        }
+        batch.clear();
+        
+        Sample sample;
+        while (batch.size() < batchSize && (sample = source.next()) != null) {
+            batch.add(sample);
+        }
+        return !batch.isEmpty();
     }
     
-    private double trainEpoch(List<Sample> augmentedData) {
-        isTraining = true;
+    private double trainEpochHogwild(SampleSource source, double rate) {
+        int workers = threadCount;
+        
+        List<Callable<Double>> tasks = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            tasks.add(() -> {
+                Workspace workspace = workspace();
+                double workerError = 0.0;
+                Sample sample;
+                while ((sample = source.next()) != null) {
+                    workerError += trainOnSample(sample, rate, workspace);
+                    source.release(sample);
+                }
+                return workerError;
+            });
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            double totalError = 0.0;
+            for (Future<Double> result : invokeAllTasks(executor, tasks)) {
+                totalError += getTaskResult(result);
+            }
+            return totalError;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private double trainEpochParallel(SampleSource source, double rate) {
+        int workers = Math.min(threadCount, batchSize);
+        int rowsPerWorker = (batchSize + workers - 1) / workers;
+        BatchWorkspace[] workspaces = new BatchWorkspace[workers];
+        for (int w = 0; w < workers; w++) {
+            workspaces[w] = new BatchWorkspace(layerSizes, convolutions, rowsPerWorker, precision);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            double totalError = 0.0;
+            List<Sample> batch = new ArrayList<>(batchSize);
+            while (nextBatch(source, batch)) {
+                totalError += trainOnBatchParallel(batch, workspaces, executor, rate);
+            }
+            return totalError;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private double trainOnBatchParallel(List<Sample> batch, BatchWorkspace[] workspaces, 
+                                        ExecutorService executor, double rate) {
+        int rowsPerWorker = (batch.size() + workspaces.length - 1) / workspaces.length;
+        int activeWorkers = (batch.size() + rowsPerWorker - 1) / rowsPerWorker;
+        
+        List<Callable<Double>> gradientTasks = new ArrayList<>();
+        for (int w = 0; w < activeWorkers; w++) {
+            List<Sample> chunk = batch.subList(w * rowsPerWorker, Math.min((w + 1) * rowsPerWorker, batch.size()));
+            BatchWorkspace workspace = workspaces[w];
+            gradientTasks.add(() -> computeBatchGradients(chunk, workspace));
+        }
+        
         double totalError = 0.0;
+        for (Future<Double> result : invokeAllTasks(executor, gradientTasks)) {
+            totalError += getTaskResult(result);
+        }
         
-        for (Sample sample : augmentedData) {
-            totalError += trainOnSample(sample);
+        optimizer.beginStep();
+        List<Callable<Double>> reductionTasks = new ArrayList<>();
+        for (int w = 0; w < activeWorkers; w++) {
+            int slice = w;
+            reductionTasks.add(() -> {
+                reduceAndApplyGradients(workspaces, activeWorkers, slice, 1.0 / batch.size(), rate);
+                return 0.0;
+            });
         }
+        for (Future<Double> result : invokeAllTasks(executor, reductionTasks)) {
+            getTaskResult(result);
+        }
+        applyPruningMasks();
         
-        isTraining = false;
         return totalError;
     }
     
-    private double trainOnSample(Sample sample) {
-        double[] input = sample.getInput();
-        double[] target = sample.getTarget();
-        double[][] layerOutputs = forwardPass(input);
+    private void reduceAndApplyGradients(BatchWorkspace[] workspaces, int activeWorkers, int slice, 
+                                         double scale, double rate) {
+        if (precision == Precision.FLOAT) {
+            reduceAndApplyGradients32(workspaces, activeWorkers, slice, scale, rate);
+            return;
+        }
+        
+        double[][] weightGradients = new double[activeWorkers][];
+        double[][] biasGradients = new double[activeWorkers][];
+        
+        for (int layer = 0; layer < layerSizes.length - 1; layer++) {
+            for (int w = 0; w < activeWorkers; w++) {
+                weightGradients[w] = workspaces[w].weightGradients[layer];
+                biasGradients[w] = workspaces[w].biasGradients[layer];
+            }
+            reduceAndApplySlice(weightGradients, slice, scale, rate, weights[layer], Optimizer.weightTensor(layer));
+            reduceAndApplySlice(biasGradients, slice, scale, rate, biases[layer], Optimizer.biasTensor(layer));
+        }
+        
+        int numLayers = layerSizes.length - 1;
+        for (int layer = 0; convolutions != null && layer < convolutions.layerCount(); layer++) {
+            for (int w = 0; w < activeWorkers; w++) {
+                weightGradients[w] = workspaces[w].convWeightGradients[layer];
+                biasGradients[w] = workspaces[w].convBiasGradients[layer];
+            }
+            reduceAndApplySlice(weightGradients, slice, scale, rate, convWeights[layer], 
+                                Optimizer.weightTensor(numLayers + layer));
+            reduceAndApplySlice(biasGradients, slice, scale, rate, convBiases[layer], 
+                                Optimizer.biasTensor(numLayers + layer));
+        }
+    }
+    
+    private void reduceAndApplySlice(double[][] gradients, int slice, double scale, double rate, 
+                                     double[] parameters, int tensor) {
+        int sliceSize = (parameters.length + gradients.length - 1) / gradients.length;
+        int from = Math.min(slice * sliceSize, parameters.length);
+        int to = Math.min(from + sliceSize, parameters.length);
+        double[] total = gradients[0];
+        
+        for (int i = from; i < to; i++) {
+            double sum = total[i];
+            for (int w = 1; w < gradients.length; w++) {
+                sum += gradients[w][i];
+            }
+            total[i] = sum;
+        }
+        optimizer.update(parameters, total, from, to, scale, rate, tensor);
+    }
+    
+    private void reduceAndApplyGradients32(BatchWorkspace[] workspaces, int activeWorkers, int slice, 
+                                           double scale, double rate) {
+        float[][] weightGradients = new float[activeWorkers][];
+        float[][] biasGradients = new float[activeWorkers][];
+        
+        for (int layer = 0; layer < layerSizes.length - 1; layer++) {
+            for (int w = 0; w < activeWorkers; w++) {
+                weightGradients[w] = workspaces[w].weightGradients32[layer];
+                biasGradients[w] = workspaces[w].biasGradients32[layer];
+            }
+            reduceAndApplySlice(weightGradients, slice, scale, rate, weights32[layer], Optimizer.weightTensor(layer));
+            reduceAndApplySlice(biasGradients, slice, scale, rate, biases32[layer], Optimizer.biasTensor(layer));
+        }
+    }
+    
+    private void reduceAndApplySlice(float[][] gradients, int slice, double scale, double rate, 
+                                     float[] parameters, int tensor) {
+        int sliceSize = (parameters.length + gradients.length - 1) / gradients.length;
+        int from = Math.min(slice * sliceSize, parameters.length);
+        int to = Math.min(from + sliceSize, parameters.length);
+        float[] total = gradients[0];
+        
+        for (int i = from; i < to; i++) {
+            float sum = total[i];
+            for (int w = 1; w < gradients.length; w++) {
+                sum += gradients[w][i];
+            }
+            total[i] = sum;
+        }
+        optimizer.update(parameters, total, from, to, scale, rate, tensor);
+    }
+    
+    private static List<Future<Double>> invokeAllTasks(ExecutorService executor, List<Callable<Double>> tasks) {
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przerwano obliczenia równoległe", e);
+        }
+    }
+    
+    private static double getTaskResult(Future<Double> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przerwano obliczenia równoległe", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Błąd w wątku uczącym: " + e.getCause(), e.getCause());
+        }
+    }
+    
+    private double computeBatchGradients(List<Sample> batch, BatchWorkspace workspace) {
+        if (precision == Precision.FLOAT) {
+            return computeBatchGradients32(batch, workspace);
+        }
+        
+        int rows = batch.size();
         int numLayers = layerSizes.length;
-        double[][] deltas = new double[numLayers - 1][];
         double totalError = 0.0;
         
-        deltas[numLayers - 2] = new double[outputSize];
-        for (int n = 0; n < outputSize; n++) {
-            double error = target[n] - layerOutputs[numLayers - 1][n];
-            totalError += Math.pow(error, 2);
-            deltas[numLayers - 2][n] = error;
+        if (convolutions != null) {
+            for (int row = 0; row < rows; row++) {
+                batch.get(row).copyInput(workspace.convolution.input, row * inputSize);
+            }
+            convolutions.forward(rows, convWeights, convBiases, workspace.convolution);
+            workspace.sparseInput = false;
+        } else {
+            for (int row = 0; row < rows; row++) {
+                batch.get(row).copyInput(workspace.activations[0], row * inputSize);
+            }
+            encodeSparseInput(batch, workspace);
+        }
+        
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            forwardBatchLayer(layer, rows, workspace);
+        }
+        
+        double[] outputs = workspace.activations[numLayers - 1];
+        double[] outputDeltas = workspace.deltas[numLayers - 2];
+        for (int row = 0; row < rows; row++) {
+            double[] target = workspace.target(batch.get(row));
+            if (teacher != null) {
+                double[] tempered = isTempered() ? workspace.temperedOutputs : outputs;
+                totalError += distillationDeltas(target, outputs, tempered, row * outputSize, outputDeltas);
+                continue;
+            }
+            for (int n = 0; n < outputSize; n++) {
+                double error = target[n] - outputs[row * outputSize + n];
+                totalError += outputLoss(target[n], outputs[row * outputSize + n]);
+                outputDeltas[row * outputSize + n] = error;
+            }
+        }
+        
+        for (int layer = numLayers - 3; layer >= 0; layer--) {
+            computeBatchLayerDeltas(layer, rows, workspace);
+        }
+        
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            int fromSize = layerSizes[layer];
+            int toSize = layerSizes[layer + 1];
+            double[] gradient = workspace.weightGradients[layer];
+            double[] biasGradient = workspace.biasGradients[layer];
+            double[] deltas = workspace.deltas[layer];
+            
+            Arrays.fill(gradient, 0.0);
+            Arrays.fill(biasGradient, 0.0);
+            if (layer == 0 && workspace.sparseInput) {
+                MatrixKernels.sparseGemmTransA(workspace.inputRowStarts, workspace.inputColumns, workspace.inputValues,
+                                               deltas, gradient, rows, toSize);
+            } else {
+                MatrixKernels.gemmTransA(workspace.activations[layer], deltas, gradient, fromSize, rows, toSize);
+            }
+            for (int row = 0; row < rows; row++) {
+                MatrixKernels.axpy(1.0, deltas, row * toSize, biasGradient, 0, toSize);
+            }
+        }
+        
+        if (convolutions != null) {
+            double[] featureDeltas = workspace.convolution.outputDeltas;
+            Arrays.fill(featureDeltas, 0, rows * layerSizes[0], 0.0);
+            MatrixKernels.gemmTransB(workspace.deltas[0], weights[0], featureDeltas, rows, layerSizes[1], layerSizes[0]);
+            convolutions.backward(rows, convWeights, workspace.convolution, 
+                                  workspace.convWeightGradients, workspace.convBiasGradients);
+        }
+        
+        return totalError;
+    }
+    
+    private void applyGradients(BatchWorkspace workspace, int rows, double rate) {
+        double scale = 1.0 / rows;
+        optimizer.beginStep();
+        
+        if (precision == Precision.FLOAT) {
+            for (int layer = 0; layer < layerSizes.length - 1; layer++) {
+                optimizer.update(weights32[layer], workspace.weightGradients32[layer], 0, weights32[layer].length, 
+                                 scale, rate, Optimizer.weightTensor(layer));
+                optimizer.update(biases32[layer], workspace.biasGradients32[layer], 0, biases32[layer].length, 
+                                 scale, rate, Optimizer.biasTensor(layer));
+            }
+            applyPruningMasks();
+            return;
+        }
+        
+        for (int layer = 0; layer < layerSizes.length - 1; layer++) {
+            optimizer.update(weights[layer], workspace.weightGradients[layer], 0, weights[layer].length, 
+                             scale, rate, Optimizer.weightTensor(layer));
+            optimizer.update(biases[layer], workspace.biasGradients[layer], 0, biases[layer].length, 
+                             scale, rate, Optimizer.biasTensor(layer));
+        }
+        
+        int numLayers = layerSizes.length - 1;
+        for (int layer = 0; convolutions != null && layer < convolutions.layerCount(); layer++) {
+            optimizer.update(convWeights[layer], workspace.convWeightGradients[layer], 0, convWeights[layer].length, 
+                             scale, rate, Optimizer.weightTensor(numLayers + layer));
+            optimizer.update(convBiases[layer], workspace.convBiasGradients[layer], 0, convBiases[layer].length, 
+                             scale, rate, Optimizer.biasTensor(numLayers + layer));
+        }
+        applyPruningMasks();
+    }
+    
+    private void encodeSparseInput(List<Sample> batch, BatchWorkspace workspace) {
+        int rows = batch.size();
+        int limit = (int)(rows * inputSize * SPARSE_INPUT_DENSITY);
+        int count = 0;
+        
+        workspace.sparseInput = false;
+        for (int row = 0; row < rows; row++) {
+            Sample sample = batch.get(row);
+            workspace.inputRowStarts[row] = count;
+            if (sample.isPacked()) {
+                int active = sample.countActiveInputs();
+                if (count + active > limit) {
+                    return;
+                }
+                sample.activeInputs(workspace.inputColumns, count);
+                if (workspace.inputValues != null) {
+                    Arrays.fill(workspace.inputValues, count, count + active, 1.0);
+                } else {
+                    Arrays.fill(workspace.inputValues32, count, count + active, 1.0f);
+                }
+                count += active;
+                continue;
+            }
+            double[] input = sample.getInput();
+            for (int i = 0; i < inputSize; i++) {
+                double value = input[i];
+                if (value != 0.0) {
+                    if (count == limit) {
+                        return;
+                    }
+                    workspace.inputColumns[count] = i;
+                    if (workspace.inputValues != null) {
+                        workspace.inputValues[count] = value;
+                    } else {
+                        workspace.inputValues32[count] = (float) value;
+                    }
+                    count++;
+                }
+            }
+        }
+        workspace.inputRowStarts[rows] = count;
+        workspace.sparseInput = true;
+    }
+    
+    private void forwardBatchLayer(int layer, int rows, BatchWorkspace workspace) {
+        int fromSize = layerSizes[layer];
+        int toSize = layerSizes[layer + 1];
+        double[] output = workspace.activations[layer + 1];
+        boolean isOutputLayer = (layer == layerSizes.length - 2);
+        
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(biases[layer], 0, output, row * toSize, toSize);
+        }
+        if (layer == 0 && workspace.sparseInput) {
+            MatrixKernels.sparseGemm(workspace.inputRowStarts, workspace.inputColumns, workspace.inputValues,
+                                     weights[layer], output, rows, toSize);
+        } else {
+            MatrixKernels.gemm(workspace.activations[layer], weights[layer], output, rows, fromSize, toSize);
+        }
+        
+        if (isOutputLayer) {
+            if (outputHead == OutputHead.SOFTMAX) {
+                for (int row = 0; row < rows; row++) {
+                    if (isTempered()) {
+                        temperedSoftmax(output, workspace.temperedOutputs, row * toSize, toSize);
+                    }
+                    MatrixKernels.softmax(output, row * toSize, toSize);
+                }
+            }
+            return;
+        }
+        
+        activations[layer].apply(output, 0, rows * toSize);
+        
+        if (dropoutRate > 0) {
+            for (int i = 0; i < rows * toSize; i++) {
+                if (ThreadLocalRandom.current().nextDouble() < dropoutRate) {
+                    output[i] = 0;
+                } else {
+                    output[i] /= (1.0 - dropoutRate);
+                }
+            }
+        }
+    }
+    
+    private void computeBatchLayerDeltas(int layer, int rows, BatchWorkspace workspace) {
+        int currentLayerSize = layerSizes[layer + 1];
+        int nextLayerSize = layerSizes[layer + 2];
+        double[] outputs = workspace.activations[layer + 1];
+        double[] deltas = workspace.deltas[layer];
+        
+        Arrays.fill(deltas, 0, rows * currentLayerSize, 0.0);
+        MatrixKernels.gemmTransB(workspace.deltas[layer + 1], weights[layer + 1], deltas, 
+                                 rows, nextLayerSize, currentLayerSize);
+        
+        Activation activation = activations[layer];
+        for (int i = 0; i < rows * currentLayerSize; i++) {
+            double output = outputs[i];
+            
+            if (output == 0 && dropoutRate > 0) {
+                deltas[i] = 0;
+                continue;
+            }
+            
+            deltas[i] *= activation.derivative(output);
+            
+            if (dropoutRate > 0) {
+                deltas[i] *= (1.0 - dropoutRate);
+            }
+        }
+    }
+    
+    private double computeBatchGradients32(List<Sample> batch, BatchWorkspace workspace) {
+        int rows = batch.size();
+        int numLayers = layerSizes.length;
+        double totalError = 0.0;
+        
+        for (int row = 0; row < rows; row++) {
+            double[] input = batch.get(row).copyInput(workspace.rowInput, 0);
+            for (int i = 0; i < inputSize; i++) {
+                workspace.activations32[0][row * inputSize + i] = (float) input[i];
+            }
+        }
+        encodeSparseInput(batch, workspace);
+        
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            forwardBatchLayer32(layer, rows, workspace);
+        }
+        
+        float[] outputs = workspace.activations32[numLayers - 1];
+        float[] outputDeltas = workspace.deltas32[numLayers - 2];
+        for (int row = 0; row < rows; row++) {
+            double[] target = workspace.target(batch.get(row));
+            if (teacher != null) {
+                float[] tempered = isTempered() ? workspace.temperedOutputs32 : outputs;
+                totalError += distillationDeltas(target, outputs, tempered, row * outputSize, outputDeltas);
+                continue;
+            }
+            for (int n = 0; n < outputSize; n++) {
+                float error = (float) target[n] - outputs[row * outputSize + n];
+                totalError += outputLoss(target[n], outputs[row * outputSize + n]);
+                outputDeltas[row * outputSize + n] = error;
+            }
+        }
+        
+        for (int layer = numLayers - 3; layer >= 0; layer--) {
+            computeBatchLayerDeltas32(layer, rows, workspace);
+        }
+        
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            int fromSize = layerSizes[layer];
+            int toSize = layerSizes[layer + 1];
+            float[] gradient = workspace.weightGradients32[layer];
+            float[] biasGradient = workspace.biasGradients32[layer];
+            float[] deltas = workspace.deltas32[layer];
+            
+            Arrays.fill(gradient, 0.0f);
+            Arrays.fill(biasGradient, 0.0f);
+            if (layer == 0 && workspace.sparseInput) {
+                MatrixKernels.sparseGemmTransA(workspace.inputRowStarts, workspace.inputColumns, workspace.inputValues32,
+                                               deltas, gradient, rows, toSize);
+            } else {
+                MatrixKernels.gemmTransA(workspace.activations32[layer], deltas, gradient, fromSize, rows, toSize);
+            }
+            for (int row = 0; row < rows; row++) {
+                MatrixKernels.axpy(1.0f, deltas, row * toSize, biasGradient, 0, toSize);
+            }
+        }
+        
+        return totalError;
+    }
+    
+    private void forwardBatchLayer32(int layer, int rows, BatchWorkspace workspace) {
+        int fromSize = layerSizes[layer];
+        int toSize = layerSizes[layer + 1];
+        float[] output = workspace.activations32[layer + 1];
+        boolean isOutputLayer = (layer == layerSizes.length - 2);
+        
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(biases32[layer], 0, output, row * toSize, toSize);
+        }
+        if (layer == 0 && workspace.sparseInput) {
+            MatrixKernels.sparseGemm(workspace.inputRowStarts, workspace.inputColumns, workspace.inputValues32,
+                                     weights32[layer], output, rows, toSize);
+        } else {
+            MatrixKernels.gemm(workspace.activations32[layer], weights32[layer], output, rows, fromSize, toSize);
+        }
+        
+        if (isOutputLayer) {
+            if (outputHead == OutputHead.SOFTMAX) {
+                for (int row = 0; row < rows; row++) {
+                    if (isTempered()) {
+                        temperedSoftmax(output, workspace.temperedOutputs32, row * toSize, toSize);
+                    }
+                    MatrixKernels.softmax(output, row * toSize, toSize);
+                }
+            }
+            return;
+        }
+        
+        activations[layer].apply(output, 0, rows * toSize);
+        
+        if (dropoutRate > 0) {
+            for (int i = 0; i < rows * toSize; i++) {
+                if (ThreadLocalRandom.current().nextDouble() < dropoutRate) {
+                    output[i] = 0;
+                } else {
+                    output[i] /= (float)(1.0 - dropoutRate);
+                }
+            }
+        }
+    }
+    
+    private void computeBatchLayerDeltas32(int layer, int rows, BatchWorkspace workspace) {
+        int currentLayerSize = layerSizes[layer + 1];
+        int nextLayerSize = layerSizes[layer + 2];
+        float[] outputs = workspace.activations32[layer + 1];
+        float[] deltas = workspace.deltas32[layer];
+        
+        Arrays.fill(deltas, 0, rows * currentLayerSize, 0.0f);
+        MatrixKernels.gemmTransB(workspace.deltas32[layer + 1], weights32[layer + 1], deltas, 
+                                 rows, nextLayerSize, currentLayerSize);
+        
+        Activation activation = activations[layer];
+        for (int i = 0; i < rows * currentLayerSize; i++) {
+            float output = outputs[i];
+            
+            if (output == 0 && dropoutRate > 0) {
+                deltas[i] = 0;
+                continue;
+            }
+            
+            deltas[i] *= (float) activation.derivative(output);
+            
+            if (dropoutRate > 0) {
+                deltas[i] *= (float)(1.0 - dropoutRate);
+            }
+        }
+    }
+    
+    private double trainOnSample(Sample sample, double rate, Workspace workspace) {
+        if (precision == Precision.FLOAT) {
+            return trainOnSample32(sample, (float) rate, workspace);
+        }
+        
+        double[] input = sample.isPacked() ? sample.copyInput(workspace.sampleInput, 0) : sample.getInput();
+        double[] target = workspace.target(sample);
+        double[][] layerOutputs = forwardPass(input, workspace);
+        int numLayers = layerSizes.length;
+        double[][] deltas = workspace.deltas;
+        double totalError = 0.0;
+        
+        if (teacher != null) {
+            double[] outputs = layerOutputs[numLayers - 1];
+            double[] tempered = isTempered() ? workspace.temperedOutputs : outputs;
+            totalError += distillationDeltas(target, outputs, tempered, 0, deltas[numLayers - 2]);
+        } else {
+            for (int n = 0; n < outputSize; n++) {
+                double error = target[n] - layerOutputs[numLayers - 1][n];
+                totalError += outputLoss(target[n], layerOutputs[numLayers - 1][n]);
+                deltas[numLayers - 2][n] = error;
+            }
         }
         
         for (int layer = numLayers - 3; layer >= 0; layer--) {
@@ -533,7 +1801,7 @@ public class NeuralNetwork {
         }
         
         for (int layer = 0; layer < numLayers - 1; layer++) {
-            updateWeightsAndBiases(layer, layerOutputs, deltas);
+            updateWeightsAndBiases(layer, layerOutputs, deltas, rate, workspace.scaledDeltas);
         }
         
         return totalError;
@@ -543,56 +1811,123 @@ public class NeuralNetwork {
         int currentLayerSize = layerSizes[layer + 1];
         int nextLayerSize = layerSizes[layer + 2];
         
-        deltas[layer] = new double[currentLayerSize];
-        
         for (int j = 0; j < currentLayerSize; j++) {
-            if (layerOutputs[layer + 1][j] == 0 && isTraining && dropoutRate > 0) {
+            if (layerOutputs[layer + 1][j] == 0 && dropoutRate > 0) {
+                deltas[layer][j] = 0;
                 continue;
             }
             
-            double error = 0.0;
-            for (int k = 0; k < nextLayerSize; k++) {
-                error += deltas[layer + 1][k] * weights[layer + 1][j][k];
+            double error = MatrixKernels.dot(deltas[layer + 1], 0, weights[layer + 1], j * nextLayerSize, nextLayerSize);
+            
+            double output = layerOutputs[layer + 1][j];
+            deltas[layer][j] = error * activations[layer].derivative(output);
+            
+            if (dropoutRate > 0) {
+                deltas[layer][j] *= (1.0 - dropoutRate);
+            }
+        }
+    }
+    
+    private void updateWeightsAndBiases(int layer, double[][] layerOutputs, double[][] deltas, 
+                                        double rate, double[] scaledDeltas) {
+        int fromSize = layerSizes[layer];
+        int toSize = layerSizes[layer + 1];
+        int numLayers = layerSizes.length;
+        
+        for (int to = 0; to < toSize; to++) {
+            if (layer < numLayers - 2 && layerOutputs[layer + 1][to] == 0 && dropoutRate > 0) {
+                scaledDeltas[to] = 0;
+                continue;
             }
             
-            double output = layerOutputs[layer + 1][j];
-            deltas[layer][j] = error * output * (1 - output);
-            
-            if (isTraining && dropoutRate > 0) {
-                deltas[layer][j] *= (1.0 - dropoutRate);
+            scaledDeltas[to] = rate * deltas[layer][to];
+            biases[layer][to] += scaledDeltas[to];
+        }
+        
+        for (int from = 0; from < fromSize; from++) {
+            double activation = layerOutputs[layer][from];
+            if (activation != 0.0) {
+                MatrixKernels.axpy(activation, scaledDeltas, 0, weights[layer], from * toSize, toSize);
             }
         }
     }
     
-    private void updateWeightsAndBiases(int layer, double[][] layerOutputs, double[][] deltas) {
-        int fromSize = layerSizes[layer];
-        int toSize = layerSizes[layer + 1];
+    private double trainOnSample32(Sample sample, float rate, Workspace workspace) {
+        double[] target = workspace.target(sample);
+        double[] input = sample.isPacked() ? sample.copyInput(workspace.sampleInput, 0) : sample.getInput();
+        float[][] layerOutputs = forwardPass32(input, workspace);
         int numLayers = layerSizes.length;
+        float[][] deltas = workspace.deltas32;
+        double totalError = 0.0;
         
-        for (int to = 0; to < toSize; to++) {
-            if (layer < numLayers - 2 && layerOutputs[layer + 1][to] == 0 && 
-                isTraining && dropoutRate > 0) {
-                continue;
+        if (teacher != null) {
+            float[] outputs = layerOutputs[numLayers - 1];
+            float[] tempered = isTempered() ? workspace.temperedOutputs32 : outputs;
+            totalError += distillationDeltas(target, outputs, tempered, 0, deltas[numLayers - 2]);
+        } else {
+            for (int n = 0; n < outputSize; n++) {
+                float error = (float) target[n] - layerOutputs[numLayers - 1][n];
+                totalError += outputLoss(target[n], layerOutputs[numLayers - 1][n]);
+                deltas[numLayers - 2][n] = error;
+            }
+        }
+        
+        for (int layer = numLayers - 3; layer >= 0; layer--) {
+            int currentLayerSize = layerSizes[layer + 1];
+            int nextLayerSize = layerSizes[layer + 2];
+            
+            for (int j = 0; j < currentLayerSize; j++) {
+                float output = layerOutputs[layer + 1][j];
+                if (output == 0 && dropoutRate > 0) {
+                    deltas[layer][j] = 0;
+                    continue;
+                }
+                
+                float error = MatrixKernels.dot(deltas[layer + 1], 0, weights32[layer + 1], j * nextLayerSize, nextLayerSize);
+                deltas[layer][j] = error * (float) activations[layer].derivative(output);
+                
+                if (dropoutRate > 0) {
+                    deltas[layer][j] *= (float)(1.0 - dropoutRate);
+                }
             }
+        }
+        
+        for (int layer = 0; layer < numLayers - 1; layer++) {
+            int fromSize = layerSizes[layer];
+            int toSize = layerSizes[layer + 1];
+            float[] scaledDeltas = workspace.scaledDeltas32;
             
-            biases[layer][to] += learningRate * deltas[layer][to];
+            for (int to = 0; to < toSize; to++) {
+                if (layer < numLayers - 2 && layerOutputs[layer + 1][to] == 0 && dropoutRate > 0) {
+                    scaledDeltas[to] = 0;
+                    continue;
+                }
+                
+                scaledDeltas[to] = rate * deltas[layer][to];
+                biases32[layer][to] += scaledDeltas[to];
+            }
             
             for (int from = 0; from < fromSize; from++) {
-                weights[layer][from][to] += learningRate * deltas[layer][to] * layerOutputs[layer][from];
+                float activation = layerOutputs[layer][from];
+                if (activation != 0.0f) {
+                    MatrixKernels.axpy(activation, scaledDeltas, 0, weights32[layer], from * toSize, toSize);
+                }
             }
         }
+        
+        return totalError;
     }
     
-    private boolean checkEarlyStopping(double validationError, int epoch) {
+    private boolean checkEarlyStopping(double validationError, int epoch, ModelSnapshot snapshot) {
         if (validationError < bestValidationError) {
             bestValidationError = validationError;
-            epochsSinceImprovement = 0;
-            saveModelState();
+            bestEpoch = epoch;
+            adoptSnapshot(snapshot);
             return false;
         } else {
-            epochsSinceImprovement++;
+            spareSnapshot = snapshot;
             
-            if (epochsSinceImprovement >= patience) {
+            if (epoch - bestEpoch >= patience) {
                 System.out.println("Wczesne zatrzymanie na epoce " + (epoch + 1) + 
                                   " (błąd walidacji nie poprawiał się przez " + patience + " epok)");
                 return true;
@@ -603,10 +1938,35 @@ public class NeuralNetwork {
     }
     
     public String getArchitectureString() {
-        return Arrays.stream(layerSizes)
-               .mapToObj(String::valueOf)
-               .reduce((a, b) -> a + " → " + b)
-               .orElse("");
+        StringBuilder architecture = new StringBuilder();
+        if (convolutions != null) {
+            architecture.append(convolutions.describe());
+        } else {
+            architecture.append(layerSizes[0]);
+        }
+        for (int layer = 0; layer < activations.length - 1; layer++) {
+            architecture.append(" → ").append(layerSizes[layer + 1]).append(' ').append(activations[layer]);
+        }
+        return architecture.append(" → ").append(outputSize).append(' ').append(outputHead).toString();
+    }
+    
+    public QuantizedNetwork quantize(List<Sample> calibrationSamples) {
+        if (convolutions != null) {
+            throw new IllegalStateException("Kwantyzacja nie obsługuje warstw konwolucyjnych");
+        }
+        finishValidation();
+        double[][] layerWeights = precision == Precision.FLOAT ? toDouble(weights32) : weights;
+        double[][] layerBiases = precision == Precision.FLOAT ? toDouble(biases32) : biases;
+        return QuantizedNetwork.quantize(layerSizes, activations, outputHead, layerWeights, layerBiases,
+                                         calibrationSamples);
+    }
+
+    public long getMultiplyAccumulates() {
+        long total = convolutions != null ? convolutions.multiplyAccumulates() : 0;
+        for (int layer = 0; layer < layerSizes.length - 1; layer++) {
+            total += (long) layerSizes[layer] * layerSizes[layer + 1];
+        }
+        return total;
     }
     
     public double getBestValidationError() {
@@ -614,46 +1974,287 @@ public class NeuralNetwork {
     }
     
     public double[] predict(double[] input) {
-        if (input.length != inputSize) {
+        double[] output = new double[outputSize];
+        predict(input, output);
+        return output;
+    }
+    
+    public void predict(double[] input, double[] output) {
+        ModelSnapshot model = inferenceModel();
+        if (input.length != model.inputSize) {
             throw new IllegalArgumentException("Nieprawidłowy rozmiar danych wejściowych: " + 
-                                              input.length + " (oczekiwano " + inputSize + ")");
+                                              input.length + " (oczekiwano " + model.inputSize + ")");
+        }
+        
+        Workspace workspace = workspace(model.layerSizes);
+        workspace.singleInput[0] = input;
+        workspace.singleOutput[0] = output;
+        if (model.precision == Precision.FLOAT) {
+            inferBlock32(model, workspace.singleInput, workspace.singleOutput, 0, 1, workspace);
+        } else {
+            inferBlock(model, workspace.singleInput, workspace.singleOutput, 0, 1, workspace);
+        }
+    }
+    
+    public double[][] predictBatch(double[][] inputs) {
+        double[][] outputs = new double[inputs.length][inferenceModel().outputSize];
+        predictBatch(inputs, outputs);
+        return outputs;
+    }
+    
+    public void predictBatch(double[][] inputs, double[][] outputs) {
+        if (outputs.length < inputs.length) {
+            throw new IllegalArgumentException("Za mało miejsca na wyniki: " + outputs.length + 
+                                              " (oczekiwano " + inputs.length + ")");
+        }
+        ModelSnapshot model = inferenceModel();
+        for (double[] input : inputs) {
+            if (input.length != model.inputSize) {
+                throw new IllegalArgumentException("Nieprawidłowy rozmiar danych wejściowych: " + 
+                                                  input.length + " (oczekiwano " + model.inputSize + ")");
+            }
+        }
+        
+        Workspace workspace = workspace(model.layerSizes);
+        for (int start = 0; start < inputs.length; start += INFERENCE_BLOCK) {
+            int rows = Math.min(INFERENCE_BLOCK, inputs.length - start);
+            if (model.precision == Precision.FLOAT) {
+                inferBlock32(model, inputs, outputs, start, rows, workspace);
+            } else {
+                inferBlock(model, inputs, outputs, start, rows, workspace);
+            }
+        }
+    }
+    
+    private ModelSnapshot inferenceModel() {
+        ModelSnapshot model = inference;
+        if (model == null) {
+            throw new IllegalStateException("Model nie został zainicjalizowany ani wczytany");
+        }
+        return model;
+    }
+    
+    private static void inferBlock(ModelSnapshot model, double[][] inputs, double[][] outputs, int start, int rows,
+                                   Workspace workspace) {
+        int[] layerSizes = model.layerSizes;
+        double[][] layerWeights = model.weights;
+        double[][] layerBiases = model.biases;
+        int inputSize = model.inputSize;
+        int outputSize = model.outputSize;
+        int numLayers = layerSizes.length;
+        double[] current = workspace.inferencePing;
+        double[] next = workspace.inferencePong;
+        int toSize = layerSizes[1];
+        
+        if (model.convolutions != null) {
+            ConvolutionalFrontEnd.Buffers buffers = workspace.convolutionBuffers(model.convolutions);
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(inputs[start + row], 0, buffers.input, row * inputSize, inputSize);
+                System.arraycopy(layerBiases[0], 0, current, row * toSize, toSize);
+            }
+            model.convolutions.forward(rows, model.convWeights, model.convBiases, buffers);
+            SparseMatrix sparse = model.sparseLayer(0);
+            if (sparse != null) {
+                sparse.multiplyAccumulate(buffers.output, current, rows);
+            } else {
+                MatrixKernels.gemm(buffers.output, layerWeights[0], current, rows, layerSizes[0], toSize);
+            }
+        } else {
+            SparseMatrix sparse = model.sparseLayer(0);
+            for (int row = 0; row < rows; row++) {
+                double[] input = inputs[start + row];
+                System.arraycopy(layerBiases[0], 0, current, row * toSize, toSize);
+                if (sparse != null) {
+                    sparse.multiplyAccumulate(input, 0, current, row * toSize);
+                    continue;
+                }
+                for (int i = 0; i < inputSize; i++) {
+                    if (input[i] != 0.0) {
+                        MatrixKernels.axpy(input[i], layerWeights[0], i * toSize, current, row * toSize, toSize);
+                    }
+                }
+            }
+        }
+        
+        for (int layer = 1; layer < numLayers - 1; layer++) {
+            model.activations[layer - 1].apply(current, 0, rows * toSize);
+            
+            int fromSize = toSize;
+            toSize = layerSizes[layer + 1];
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(layerBiases[layer], 0, next, row * toSize, toSize);
+            }
+            SparseMatrix sparse = model.sparseLayer(layer);
+            if (sparse != null) {
+                sparse.multiplyAccumulate(current, next, rows);
+            } else if (rows == 1) {
+                for (int i = 0; i < fromSize; i++) {
+                    MatrixKernels.axpy(current[i], layerWeights[layer], i * toSize, next, 0, toSize);
+                }
+            } else {
+                MatrixKernels.gemm(current, layerWeights[layer], next, rows, fromSize, toSize);
+            }
+            
+            double[] swap = current;
+            current = next;
+            next = swap;
+        }
+        
+        for (int row = 0; row < rows; row++) {
+            if (model.outputHead == OutputHead.SOFTMAX) {
+                MatrixKernels.softmax(current, row * outputSize, outputSize);
+            }
+            System.arraycopy(current, row * outputSize, outputs[start + row], 0, outputSize);
+        }
+    }
+    
+    private static void inferBlock32(ModelSnapshot model, double[][] inputs, double[][] outputs, int start, int rows,
+                                     Workspace workspace) {
+        int[] layerSizes = model.layerSizes;
+        float[][] layerWeights = model.weights32;
+        float[][] layerBiases = model.biases32;
+        int inputSize = model.inputSize;
+        int outputSize = model.outputSize;
+        int numLayers = layerSizes.length;
+        float[] current = workspace.inferencePing32;
+        float[] next = workspace.inferencePong32;
+        int toSize = layerSizes[1];
+        
+        SparseMatrix firstSparse = model.sparseLayer(0);
+        for (int row = 0; row < rows; row++) {
+            double[] input = inputs[start + row];
+            System.arraycopy(layerBiases[0], 0, current, row * toSize, toSize);
+            if (firstSparse != null) {
+                firstSparse.multiplyAccumulate(input, 0, current, row * toSize);
+                continue;
+            }
+            for (int i = 0; i < inputSize; i++) {
+                if (input[i] != 0.0) {
+                    MatrixKernels.axpy((float) input[i], layerWeights[0], i * toSize, current, row * toSize, toSize);
+                }
+            }
+        }
+        
+        for (int layer = 1; layer < numLayers - 1; layer++) {
+            model.activations[layer - 1].apply(current, 0, rows * toSize);
+            
+            int fromSize = toSize;
+            toSize = layerSizes[layer + 1];
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(layerBiases[layer], 0, next, row * toSize, toSize);
+            }
+            SparseMatrix sparse = model.sparseLayer(layer);
+            if (sparse != null) {
+                sparse.multiplyAccumulate(current, next, rows);
+            } else if (rows == 1) {
+                for (int i = 0; i < fromSize; i++) {
+                    MatrixKernels.axpy(current[i], layerWeights[layer], i * toSize, next, 0, toSize);
+                }
+            } else {
+                MatrixKernels.gemm(current, layerWeights[layer], next, rows, fromSize, toSize);
+            }
+            
+            float[] swap = current;
+            current = next;
+            next = swap;
+        }
+        
+        for (int row = 0; row < rows; row++) {
+            if (model.outputHead == OutputHead.SOFTMAX) {
+                MatrixKernels.softmax(current, row * outputSize, outputSize);
+            }
+            for (int k = 0; k < outputSize; k++) {
+                outputs[start + row][k] = current[row * outputSize + k];
+            }
         }
-
-        isTraining = false;
-        double[][] outputs = forwardPass(input);
-        return outputs[outputs.length - 1];
     }
     
     public void saveModel(String path) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(path))) {
-            writeModelToStream(oos);
+        try {
+            AtomicFiles.write(path, encodeModel());
         } catch (IOException e) {
             System.err.println("Błąd podczas zapisywania modelu: " + e.getMessage());
             throw e;
         }
     }
     
-    private void writeModelToStream(ObjectOutputStream oos) throws IOException {
-        oos.writeInt(inputSize);
-        oos.writeInt(hidden0Size);
-        oos.writeInt(hidden1Size);
-        oos.writeInt(hidden2Size);
-        oos.writeInt(hidden3Size);
-        oos.writeInt(hidden4Size);
-        oos.writeInt(outputSize);
-        oos.writeDouble(learningRate);
-        oos.writeDouble(dropoutRate);
-
+    private ByteBuffer encodeModel() {
         int numLayers = layerSizes.length - 1;
+        int elementSize = precision == Precision.FLOAT ? Float.BYTES : Double.BYTES;
+        int convLayers = convolutions != null ? convolutions.layerCount() : 0;
+        int headerSize = 6 * Integer.BYTES + (2 * layerSizes.length - 1) * Integer.BYTES + 2 * Double.BYTES +
+                         (convLayers > 0 ? (1 + 4 * convLayers) * Integer.BYTES : 0);
+        long parameterCount = 0;
+        for (int layer = 0; layer < numLayers; layer++) {
+            parameterCount += (long) layerSizes[layer] * layerSizes[layer + 1] + layerSizes[layer + 1];
+        }
+        for (int layer = 0; layer < convLayers; layer++) {
+            parameterCount += convolutions.weightSize(layer) + convolutions.biasSize(layer);
+        }
+        
+        int[] tensorSizes = tensorSizes();
+        long optimizerSize = optimizer.encodedSize(tensorSizes);
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(headerSize + parameterCount * elementSize + 
+                                                                optimizerSize + Integer.BYTES))
+                                      .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MODEL_MAGIC);
+        buffer.putInt(MODEL_VERSION);
+        buffer.putInt(elementSize * 8);
+        buffer.putInt(layerSizes.length);
+        for (int size : layerSizes) {
+            buffer.putInt(size);
+        }
+        for (Activation activation : activations) {
+            buffer.putInt(activation.ordinal());
+        }
+        buffer.putDouble(learningRate);
+        buffer.putDouble(dropoutRate);
+        buffer.putInt(outputHead.ordinal());
+        buffer.putInt(convLayers);
+        if (convLayers > 0) {
+            buffer.putInt(convolutions.getImageSize());
+            for (ConvLayer convLayer : convolutions.getLayers()) {
+                buffer.putInt(convLayer.getFilters());
+                buffer.putInt(convLayer.getKernelSize());
+                buffer.putInt(convLayer.getPoolSize());
+                buffer.putInt(convLayer.getActivation().ordinal());
+            }
+        }
+        
         for (int layer = 0; layer < numLayers; layer++) {
-            oos.writeObject(weights[layer]);
-            oos.writeObject(biases[layer]);
+            if (precision == Precision.FLOAT) {
+                buffer.asFloatBuffer().put(weights32[layer]).put(biases32[layer]);
+                buffer.position(buffer.position() + (weights32[layer].length + biases32[layer].length) * Float.BYTES);
+            } else {
+                buffer.asDoubleBuffer().put(weights[layer]).put(biases[layer]);
+                buffer.position(buffer.position() + (weights[layer].length + biases[layer].length) * Double.BYTES);
+            }
+        }
+        for (int layer = 0; layer < convLayers; layer++) {
+            buffer.asDoubleBuffer().put(convWeights[layer]).put(convBiases[layer]);
+            buffer.position(buffer.position() + (convWeights[layer].length + convBiases[layer].length) * Double.BYTES);
         }
+        optimizer.write(buffer, tensorSizes);
+        
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+        return buffer;
     }
     
     public void loadModel(String path) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(path))) {
-            readModelFromStream(ois);
+        finishValidation();
+        try {
+            if (isBinaryModel(Paths.get(path))) {
+                readBinaryModel(Paths.get(path));
+            } else {
+                try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+                    readModelFromStream(ois);
+                }
+            }
+            restorePruningMasks();
+            publishInference();
             System.out.println("Model został pomyślnie załadowany z pliku: " + path);
             System.out.println("Architektura: " + getArchitectureString());
         } catch (Exception e) {
@@ -662,26 +2263,591 @@ public class NeuralNetwork {
         }
     }
     
+    public static int checksumOf(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() >= 2 * Integer.BYTES && buffer.getInt(0) == MODEL_MAGIC) {
+                return buffer.getInt(buffer.limit() - Integer.BYTES);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer);
+            return (int) checksum.getValue();
+        }
+    }
+    
+    private static boolean isBinaryModel(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MODEL_MAGIC;
+        }
+    }
+    
+    private void readBinaryModel(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            
+            int contentSize = buffer.limit() - Integer.BYTES;
+            if (contentSize < 4 * Integer.BYTES) {
+                throw new IOException("Plik modelu jest uszkodzony: " + path);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().limit(contentSize));
+            if ((int) checksum.getValue() != buffer.getInt(contentSize)) {
+                throw new IOException("Nieprawidłowa suma kontrolna pliku modelu: " + path);
+            }
+            
+            buffer.getInt();
+            int version = buffer.getInt();
+            if (version < 1 || version > MODEL_VERSION) {
+                throw new IOException("Nieobsługiwana wersja formatu modelu: " + version);
+            }
+            int bits = buffer.getInt();
+            if (bits != 32 && bits != 64) {
+                throw new IOException("Nieobsługiwana precyzja modelu: " + bits + " bitów");
+            }
+            int layerCount = buffer.getInt();
+            if (layerCount < 2 || (long) layerCount * 2 * Integer.BYTES > contentSize) {
+                throw new IOException("Nieobsługiwana liczba warstw: " + layerCount);
+            }
+            int[] sizes = new int[layerCount];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = buffer.getInt();
+                if (sizes[i] <= 0) {
+                    throw new IOException("Nieprawidłowy rozmiar warstwy: " + sizes[i]);
+                }
+            }
+            Activation[] layerActivations = defaultActivations(sizes.length - 1);
+            if (version >= 4) {
+                for (int layer = 0; layer < layerActivations.length; layer++) {
+                    int activation = buffer.getInt();
+                    if (activation < 0 || activation >= Activation.values().length) {
+                        throw new IOException("Nieznana funkcja aktywacji: " + activation);
+                    }
+                    layerActivations[layer] = Activation.values()[activation];
+                }
+            }
+            double rate = buffer.getDouble();
+            double dropout = buffer.getDouble();
+            int head = version >= 3 ? buffer.getInt() : OutputHead.LINEAR.ordinal();
+            if (head < 0 || head >= OutputHead.values().length) {
+                throw new IOException("Nieznany typ warstwy wyjściowej: " + head);
+            }
+            ConvolutionalFrontEnd frontEnd = version >= 5 ? readConvolutions(buffer, contentSize) : null;
+            if (frontEnd != null && (bits != 64 || frontEnd.outputSize() != sizes[0])) {
+                throw new IOException("Warstwy konwolucyjne nie pasują do nagłówka modelu: " + path);
+            }
+            
+            int numLayers = sizes.length - 1;
+            long expectedSize = buffer.position();
+            for (int layer = 0; layer < numLayers; layer++) {
+                expectedSize += ((long) sizes[layer] * sizes[layer + 1] + sizes[layer + 1]) * (bits / 8);
+            }
+            for (int layer = 0; frontEnd != null && layer < frontEnd.layerCount(); layer++) {
+                expectedSize += ((long) frontEnd.weightSize(layer) + frontEnd.biasSize(layer)) * Double.BYTES;
+            }
+            if (version == 1 ? expectedSize != contentSize : expectedSize > contentSize) {
+                throw new IOException("Rozmiar pliku modelu nie zgadza się z nagłówkiem: " + path);
+            }
+            
+            Optimizer savedOptimizer = optimizer;
+            if (version >= 2) {
+                ByteBuffer optimizerSection = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                                                    .position((int) expectedSize);
+                try {
+                    savedOptimizer = Optimizer.read(optimizerSection, tensorSizes(sizes, frontEnd));
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("Rozmiar pliku modelu nie zgadza się z nagłówkiem: " + path, e);
+                }
+                if (optimizerSection.position() != contentSize) {
+                    throw new IOException("Rozmiar pliku modelu nie zgadza się z nagłówkiem: " + path);
+                }
+            } else {
+                savedOptimizer.reset();
+            }
+            
+            this.precision = bits == 32 ? Precision.FLOAT : Precision.DOUBLE;
+            this.layerSizes = sizes;
+            this.activations = layerActivations;
+            this.convolutions = frontEnd;
+            this.inputSize = frontEnd != null ? frontEnd.inputSize() : sizes[0];
+            this.outputSize = sizes[sizes.length - 1];
+            this.learningRate = rate;
+            this.dropoutRate = dropout;
+            this.optimizer = savedOptimizer;
+            this.outputHead = OutputHead.values()[head];
+            this.weights = this.biases = this.bestWeights = this.bestBiases = null;
+            this.weights32 = this.biases32 = this.bestWeights32 = this.bestBiases32 = null;
+            this.convWeights = this.convBiases = this.bestConvWeights = this.bestConvBiases = null;
+            
+            if (precision == Precision.FLOAT) {
+                this.weights32 = new float[numLayers][];
+                this.biases32 = new float[numLayers][];
+                for (int layer = 0; layer < numLayers; layer++) {
+                    weights32[layer] = new float[sizes[layer] * sizes[layer + 1]];
+                    biases32[layer] = new float[sizes[layer + 1]];
+                    buffer.asFloatBuffer().get(weights32[layer]).get(biases32[layer]);
+                    buffer.position(buffer.position() + (weights32[layer].length + biases32[layer].length) * Float.BYTES);
+                }
+            } else {
+                this.weights = new double[numLayers][];
+                this.biases = new double[numLayers][];
+                for (int layer = 0; layer < numLayers; layer++) {
+                    weights[layer] = new double[sizes[layer] * sizes[layer + 1]];
+                    biases[layer] = new double[sizes[layer + 1]];
+                    buffer.asDoubleBuffer().get(weights[layer]).get(biases[layer]);
+                    buffer.position(buffer.position() + (weights[layer].length + biases[layer].length) * Double.BYTES);
+                }
+            }
+            
+            if (frontEnd != null) {
+                this.convWeights = new double[frontEnd.layerCount()][];
+                this.convBiases = new double[frontEnd.layerCount()][];
+                for (int layer = 0; layer < frontEnd.layerCount(); layer++) {
+                    convWeights[layer] = new double[frontEnd.weightSize(layer)];
+                    convBiases[layer] = new double[frontEnd.biasSize(layer)];
+                    buffer.asDoubleBuffer().get(convWeights[layer]).get(convBiases[layer]);
+                    buffer.position(buffer.position() + (convWeights[layer].length + convBiases[layer].length) * Double.BYTES);
+                }
+            }
+        }
+    }
+    
+    private static ConvolutionalFrontEnd readConvolutions(ByteBuffer buffer, int contentSize) throws IOException {
+        int count = buffer.getInt();
+        if (count == 0) {
+            return null;
+        }
+        if (count < 0 || (long) count * 4 * Integer.BYTES > contentSize) {
+            throw new IOException("Nieobsługiwana liczba warstw konwolucyjnych: " + count);
+        }
+        int imageSize = buffer.getInt();
+        List<ConvLayer> layers = new ArrayList<>(count);
+        try {
+            for (int layer = 0; layer < count; layer++) {
+                int filters = buffer.getInt();
+                int kernelSize = buffer.getInt();
+                int poolSize = buffer.getInt();
+                int activation = buffer.getInt();
+                if (activation < 0 || activation >= Activation.values().length) {
+                    throw new IOException("Nieznana funkcja aktywacji: " + activation);
+                }
+                layers.add(new ConvLayer(filters, kernelSize, Activation.values()[activation], poolSize));
+            }
+            return new ConvolutionalFrontEnd(imageSize, layers);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Nieprawidłowe warstwy konwolucyjne: " + e.getMessage(), e);
+        }
+    }
+    
     private void readModelFromStream(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        this.precision = Precision.DOUBLE;
         this.inputSize = ois.readInt();
-        this.hidden0Size = ois.readInt();
-        this.hidden1Size = ois.readInt();
-        this.hidden2Size = ois.readInt();
-        this.hidden3Size = ois.readInt();
-        this.hidden4Size = ois.readInt();
-        this.outputSize = ois.readInt();
+        int[] sizes = new int[7];
+        sizes[0] = inputSize;
+        for (int i = 1; i < sizes.length; i++) {
+            sizes[i] = ois.readInt();
+        }
+        this.outputSize = sizes[sizes.length - 1];
         this.learningRate = ois.readDouble();
         this.dropoutRate = ois.readDouble();
+        this.optimizer.reset();
+        this.outputHead = OutputHead.LINEAR;
+        this.convolutions = null;
+        this.convWeights = this.convBiases = this.bestConvWeights = this.bestConvBiases = null;
         
-        this.layerSizes = new int[]{inputSize, hidden0Size, hidden1Size, hidden2Size, hidden3Size, hidden4Size, outputSize};
+        this.layerSizes = sizes;
+        this.activations = defaultActivations(sizes.length - 1);
         
         int numLayers = layerSizes.length - 1;
-        this.weights = new double[numLayers][][];
+        this.bestWeights = this.bestBiases = null;
+        this.weights32 = this.biases32 = this.bestWeights32 = this.bestBiases32 = null;
+        this.weights = new double[numLayers][];
         this.biases = new double[numLayers][];
 
         for (int layer = 0; layer < numLayers; layer++) {
-            weights[layer] = (double[][]) ois.readObject();
+            weights[layer] = flatten((double[][]) ois.readObject());
             biases[layer] = (double[]) ois.readObject();
         }
     }
+    
+    private static double[] flatten(double[][] matrix) {
+        int cols = matrix.length > 0 ? matrix[0].length : 0;
+        double[] flat = new double[matrix.length * cols];
+        for (int row = 0; row < matrix.length; row++) {
+            System.arraycopy(matrix[row], 0, flat, row * cols, cols);
+        }
+        return flat;
+    }
+    
+    private static float[][] toFloat(double[][] values) {
+        float[][] result = new float[values.length][];
+        for (int layer = 0; layer < values.length; layer++) {
+            result[layer] = new float[values[layer].length];
+            for (int i = 0; i < values[layer].length; i++) {
+                result[layer][i] = (float) values[layer][i];
+            }
+        }
+        return result;
+    }
+    
+    private static double[][] toDouble(float[][] values) {
+        double[][] result = new double[values.length][];
+        for (int layer = 0; layer < values.length; layer++) {
+            result[layer] = new double[values[layer].length];
+            for (int i = 0; i < values[layer].length; i++) {
+                result[layer][i] = values[layer][i];
+            }
+        }
+        return result;
+    }
+    
+    private static final class ModelSnapshot {
+        int[] layerSizes;
+        Activation[] activations;
+        OutputHead outputHead;
+        ConvolutionalFrontEnd convolutions;
+        Precision precision;
+        int inputSize;
+        int outputSize;
+        double[][] weights;
+        double[][] biases;
+        float[][] weights32;
+        float[][] biases32;
+        double[][] convWeights;
+        double[][] convBiases;
+        SparseMatrix[] sparseWeights;
+        
+        SparseMatrix sparseLayer(int layer) {
+            return sparseWeights != null ? sparseWeights[layer] : null;
+        }
+    }
+    
+    private static final class PendingValidation {
+        final int epoch;
+        final ModelSnapshot snapshot;
+        final List<Future<Double>> parts;
+        final int sampleCount;
+        
+        PendingValidation(int epoch, ModelSnapshot snapshot, List<Future<Double>> parts, int sampleCount) {
+            this.epoch = epoch;
+            this.snapshot = snapshot;
+            this.parts = parts;
+            this.sampleCount = sampleCount;
+        }
+    }
+    
+    private interface SampleSource {
+        Sample next();
+        
+        default void release(Sample sample) {
+        }
+    }
+    
+    private final class AugmentationPipeline implements SampleSource, AutoCloseable {
+        private final List<Sample> trainingData;
+        private final NeuralNetwork labeler;
+        private final double labelTemperature;
+        private final AugmentationCache cache;
+        private final int[] cacheSlots;
+        private final int[] plan;
+        private final AtomicInteger cursor = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final BlockingQueue<Sample> ready = new ArrayBlockingQueue<>(AUGMENTATION_QUEUE_CAPACITY);
+        private final BlockingQueue<Sample> free;
+        private final ExecutorService producers;
+        private volatile Throwable failure;
+        
+        AugmentationPipeline(List<Sample> trainingData) {
+            this.trainingData = trainingData;
+            this.labeler = teacher;
+            this.labelTemperature = temperature;
+            this.cache = augmentationCache;
+            this.cacheSlots = new int[trainingData.size()];
+            
+            int[] counts = new int[trainingData.size()];
+            int total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = 1 + ThreadLocalRandom.current().nextInt(minAugmentations, maxAugmentations + 1);
+                cacheSlots[i] = cache != null ? cache.slotOf(trainingData.get(i)) : -1;
+                total += counts[i];
+            }
+            
+            int[] variants = new int[cache != null ? cache.variants() : 1];
+            for (int v = 0; v < variants.length; v++) {
+                variants[v] = v;
+            }
+            
+            plan = new int[total];
+            int position = 0;
+            for (int i = 0; i < counts.length; i++) {
+                plan[position++] = i << 8;
+                for (int a = 1; a < counts[i]; a++) {
+                    int pick = (a - 1) % variants.length;
+                    int swapWith = pick + ThreadLocalRandom.current().nextInt(variants.length - pick);
+                    int variant = variants[swapWith];
+                    variants[swapWith] = variants[pick];
+                    variants[pick] = variant;
+                    plan[position++] = (i << 8) | (variant + 1);
+                }
+            }
+            for (int i = plan.length - 1; i > 0; i--) {
+                int j = ThreadLocalRandom.current().nextInt(i + 1);
+                int swap = plan[i];
+                plan[i] = plan[j];
+                plan[j] = swap;
+            }
+            remaining = new AtomicInteger(total);
+            
+            int poolSize = AUGMENTATION_QUEUE_CAPACITY + batchSize + threadCount + augmentationThreads;
+            free = new ArrayBlockingQueue<>(poolSize);
+            for (int i = 0; i < poolSize; i++) {
+                free.add(new Sample(new double[inputSize], new double[labeler != null ? 2 * outputSize : outputSize]));
+            }
+            
+            producers = Executors.newFixedThreadPool(augmentationThreads, task -> {
+                Thread thread = new Thread(task, "augmentacja");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int p = 0; p < augmentationThreads; p++) {
+                producers.execute(this::produce);
+            }
+        }
+        
+        int size() {
+            return plan.length;
+        }
+        
+        private void produce() {
+            double[] unpacked = new double[inputSize];
+            try {
+                int position;
+                while ((position = cursor.getAndIncrement()) < plan.length) {
+                    int index = plan[position] >>> 8;
+                    int variant = (plan[position] & 0xFF) - 1;
+                    Sample original = trainingData.get(index);
+                    Sample sample = free.take();
+                    if (variant < 0) {
+                        original.copyInput(sample.getInput(), 0);
+                    } else if (cacheSlots[index] >= 0) {
+                        cache.readVariant(cacheSlots[index], variant, sample.getInput());
+                    } else {
+                        double[] source = original.isPacked() ? original.copyInput(unpacked, 0) : original.getInput();
+                        AUGMENTATION.augment(source, sample.getInput());
+                    }
+                    if (labeler != null) {
+                        teach(labeler, labelTemperature, sample.getInput(), original, sample.getTarget());
+                    } else {
+                        original.copyTarget(sample.getTarget(), 0);
+                    }
+                    ready.put(sample);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+        }
+        
+        @Override
+        public Sample next() {
+            if (remaining.getAndDecrement() <= 0) {
+                return null;
+            }
+            try {
+                Sample sample;
+                while ((sample = ready.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    if (failure != null) {
+                        throw new IllegalStateException("Błąd w wątku augmentacji: " + failure, failure);
+                    }
+                }
+                return sample;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Przerwano augmentację danych", e);
+            }
+        }
+        
+        @Override
+        public void release(Sample sample) {
+            free.offer(sample);
+        }
+        
+        @Override
+        public void close() {
+            producers.shutdownNow();
+        }
+    }
+    
+    private static final class BatchWorkspace {
+        final double[][] activations;
+        final double[][] deltas;
+        final double[][] weightGradients;
+        final double[][] biasGradients;
+        final float[][] activations32;
+        final float[][] deltas32;
+        final float[][] weightGradients32;
+        final float[][] biasGradients32;
+        final int[] inputRowStarts;
+        final int[] inputColumns;
+        final double[] inputValues;
+        final float[] inputValues32;
+        final double[] temperedOutputs;
+        final float[] temperedOutputs32;
+        final double[] rowInput;
+        final double[] rowTarget;
+        final ConvolutionalFrontEnd.Buffers convolution;
+        final double[][] convWeightGradients;
+        final double[][] convBiasGradients;
+        boolean sparseInput;
+        
+        BatchWorkspace(int[] layerSizes, ConvolutionalFrontEnd convolutions, int batchSize, Precision precision) {
+            int numLayers = layerSizes.length;
+            rowTarget = new double[2 * layerSizes[numLayers - 1]];
+            if (convolutions != null) {
+                convolution = convolutions.createBuffers(batchSize, true);
+                convWeightGradients = new double[convolutions.layerCount()][];
+                convBiasGradients = new double[convolutions.layerCount()][];
+                for (int layer = 0; layer < convolutions.layerCount(); layer++) {
+                    convWeightGradients[layer] = new double[convolutions.weightSize(layer)];
+                    convBiasGradients[layer] = new double[convolutions.biasSize(layer)];
+                }
+            } else {
+                convolution = null;
+                convWeightGradients = convBiasGradients = null;
+            }
+            int sparseCapacity = (int)(batchSize * layerSizes[0] * SPARSE_INPUT_DENSITY);
+            inputRowStarts = new int[batchSize + 1];
+            inputColumns = new int[sparseCapacity];
+            
+            if (precision == Precision.FLOAT) {
+                activations = deltas = weightGradients = biasGradients = null;
+                inputValues = null;
+                activations32 = new float[numLayers][];
+                deltas32 = new float[numLayers - 1][];
+                weightGradients32 = new float[numLayers - 1][];
+                biasGradients32 = new float[numLayers - 1][];
+                
+                activations32[0] = new float[batchSize * layerSizes[0]];
+                for (int layer = 0; layer < numLayers - 1; layer++) {
+                    activations32[layer + 1] = new float[batchSize * layerSizes[layer + 1]];
+                    deltas32[layer] = new float[batchSize * layerSizes[layer + 1]];
+                    weightGradients32[layer] = new float[layerSizes[layer] * layerSizes[layer + 1]];
+                    biasGradients32[layer] = new float[layerSizes[layer + 1]];
+                }
+                inputValues32 = new float[sparseCapacity];
+                temperedOutputs = null;
+                temperedOutputs32 = new float[batchSize * layerSizes[numLayers - 1]];
+                rowInput = new double[layerSizes[0]];
+                return;
+            }
+            
+            activations32 = deltas32 = weightGradients32 = biasGradients32 = null;
+            inputValues32 = null;
+            activations = new double[numLayers][];
+            deltas = new double[numLayers - 1][];
+            weightGradients = new double[numLayers - 1][];
+            biasGradients = new double[numLayers - 1][];
+            
+            activations[0] = convolution != null ? convolution.output : new double[batchSize * layerSizes[0]];
+            for (int layer = 0; layer < numLayers - 1; layer++) {
+                activations[layer + 1] = new double[batchSize * layerSizes[layer + 1]];
+                deltas[layer] = new double[batchSize * layerSizes[layer + 1]];
+                weightGradients[layer] = new double[layerSizes[layer] * layerSizes[layer + 1]];
+                biasGradients[layer] = new double[layerSizes[layer + 1]];
+            }
+            inputValues = new double[sparseCapacity];
+            temperedOutputs = new double[batchSize * layerSizes[numLayers - 1]];
+            temperedOutputs32 = null;
+            rowInput = null;
+        }
+        
+        double[] target(Sample sample) {
+            return sample.isPacked() ? sample.copyTarget(rowTarget, 0) : sample.getTarget();
+        }
+    }
+    
+    private static final class Workspace {
+        final int[] layerSizes;
+        final double[][] activations;
+        final double[][] deltas;
+        final double[] scaledDeltas;
+        final float[][] activations32;
+        final float[][] deltas32;
+        final float[] scaledDeltas32;
+        final int[] activeInputs;
+        final double[] sampleInput;
+        final double[] sampleTarget;
+        final double[] temperedOutputs;
+        final float[] temperedOutputs32;
+        final double[] inferencePing;
+        final double[] inferencePong;
+        final float[] inferencePing32;
+        final float[] inferencePong32;
+        final double[][] singleInput = new double[1][];
+        final double[][] singleOutput = new double[1][];
+        final double[][] blockOutputs;
+        double[][] blockInputs;
+        ConvolutionalFrontEnd.Buffers convolution;
+        
+        Workspace(int[] layerSizes) {
+            this.layerSizes = layerSizes.clone();
+            int numLayers = layerSizes.length;
+            int maxLayerSize = Arrays.stream(layerSizes).max().orElse(0);
+            
+            activations = new double[numLayers][];
+            deltas = new double[numLayers - 1][];
+            for (int layer = 0; layer < numLayers - 1; layer++) {
+                activations[layer + 1] = new double[layerSizes[layer + 1]];
+                deltas[layer] = new double[layerSizes[layer + 1]];
+            }
+            
+            scaledDeltas = new double[maxLayerSize];
+            activations32 = new float[numLayers][];
+            deltas32 = new float[numLayers - 1][];
+            activations32[0] = new float[layerSizes[0]];
+            for (int layer = 0; layer < numLayers - 1; layer++) {
+                activations32[layer + 1] = new float[layerSizes[layer + 1]];
+                deltas32[layer] = new float[layerSizes[layer + 1]];
+            }
+            scaledDeltas32 = new float[maxLayerSize];
+            activeInputs = new int[layerSizes[0]];
+            sampleInput = new double[layerSizes[0]];
+            sampleTarget = new double[2 * layerSizes[numLayers - 1]];
+            temperedOutputs = new double[layerSizes[numLayers - 1]];
+            temperedOutputs32 = new float[layerSizes[numLayers - 1]];
+            int maxHiddenSize = Arrays.stream(layerSizes, 1, numLayers).max().orElse(0);
+            inferencePing = new double[INFERENCE_BLOCK * maxHiddenSize];
+            inferencePong = new double[INFERENCE_BLOCK * maxHiddenSize];
+            inferencePing32 = new float[INFERENCE_BLOCK * maxHiddenSize];
+            inferencePong32 = new float[INFERENCE_BLOCK * maxHiddenSize];
+            blockOutputs = new double[INFERENCE_BLOCK][layerSizes[numLayers - 1]];
+        }
+        
+        boolean fits(int[] sizes) {
+            return Arrays.equals(layerSizes, sizes);
+        }
+        
+        double[] target(Sample sample) {
+            return sample.isPacked() ? sample.copyTarget(sampleTarget, 0) : sample.getTarget();
+        }
+        
+        double[][] blockInputs(int inputSize) {
+            if (blockInputs == null || blockInputs[0].length != inputSize) {
+                blockInputs = new double[INFERENCE_BLOCK][inputSize];
+            }
+            return blockInputs;
+        }
+        
+        ConvolutionalFrontEnd.Buffers convolutionBuffers(ConvolutionalFrontEnd convolutions) {
+            if (convolution == null || !convolution.fits(convolutions, INFERENCE_BLOCK, false)) {
+                convolution = convolutions.createBuffers(INFERENCE_BLOCK, false);
+            }
+            return convolution;
+        }
+    }
 }
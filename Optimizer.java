@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public abstract class Optimizer {
+    private static final int SGD = 0;
+    private static final int MOMENTUM = 1;
+    private static final int NESTEROV = 2;
+    private static final int ADAM = 3;
+    private static final int ADAMW = 4;
+
+    private final int type;
+    private final double[] hyperparameters;
+    double[][][] state;
+    long step;
+
+    private Optimizer(int type, double... hyperparameters) {
+        this.type = type;
+        this.hyperparameters = hyperparameters;
+    }
+
+    public static Optimizer sgd() {
+        return new Sgd();
+    }
+
+    public static Optimizer momentum(double momentum) {
+        return new Momentum(MOMENTUM, momentum);
+    }
+
+    public static Optimizer nesterov(double momentum) {
+        return new Momentum(NESTEROV, momentum);
+    }
+
+    public static Optimizer adam() {
+        return adam(0.9, 0.999, 1e-8);
+    }
+
+    public static Optimizer adam(double beta1, double beta2, double epsilon) {
+        return new Adam(ADAM, beta1, beta2, epsilon, 0.0);
+    }
+
+    public static Optimizer adamW(double weightDecay) {
+        return adamW(0.9, 0.999, 1e-8, weightDecay);
+    }
+
+    public static Optimizer adamW(double beta1, double beta2, double epsilon, double weightDecay) {
+        return new Adam(ADAMW, beta1, beta2, epsilon, weightDecay);
+    }
+
+    static int weightTensor(int layer) {
+        return 2 * layer;
+    }
+
+    static int biasTensor(int layer) {
+        return 2 * layer + 1;
+    }
+
+    abstract int stateSlots();
+
+    abstract void update(double[] parameters, double[] gradient, int from, int to,
+                         double gradientScale, double rate, int tensor);
+
+    abstract void update(float[] parameters, float[] gradient, int from, int to,
+                         double gradientScale, double rate, int tensor);
+
+    boolean isStateless() {
+        return stateSlots() == 0;
+    }
+
+    void prepare(int[] tensorSizes) {
+        if (isStateless() || matches(tensorSizes)) {
+            return;
+        }
+        state = new double[stateSlots()][tensorSizes.length][];
+        for (double[][] slot : state) {
+            for (int tensor = 0; tensor < tensorSizes.length; tensor++) {
+                slot[tensor] = new double[tensorSizes[tensor]];
+            }
+        }
+        step = 0;
+    }
+
+    void reset() {
+        state = null;
+        step = 0;
+    }
+
+    void beginStep() {
+        step++;
+    }
+
+    private boolean matches(int[] tensorSizes) {
+        if (state == null || state[0].length != tensorSizes.length) {
+            return false;
+        }
+        for (int tensor = 0; tensor < tensorSizes.length; tensor++) {
+            if (state[0][tensor].length != tensorSizes[tensor]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long encodedSize(int[] tensorSizes) {
+        long size = 2 * Integer.BYTES + hyperparameters.length * Double.BYTES + Long.BYTES + Integer.BYTES;
+        if (matches(tensorSizes)) {
+            for (double[][] slot : state) {
+                for (double[] values : slot) {
+                    size += (long) values.length * Double.BYTES;
+                }
+            }
+        }
+        return size;
+    }
+
+    void write(ByteBuffer buffer, int[] tensorSizes) {
+        boolean saveState = matches(tensorSizes);
+        buffer.putInt(type);
+        buffer.putInt(hyperparameters.length);
+        for (double value : hyperparameters) {
+            buffer.putDouble(value);
+        }
+        buffer.putLong(saveState ? step : 0);
+        buffer.putInt(saveState ? state.length : 0);
+        if (saveState) {
+            for (double[][] slot : state) {
+                for (double[] values : slot) {
+                    buffer.asDoubleBuffer().put(values);
+                    buffer.position(buffer.position() + values.length * Double.BYTES);
+                }
+            }
+        }
+    }
+
+    static Optimizer read(ByteBuffer buffer, int[] tensorSizes) throws IOException {
+        int type = buffer.getInt();
+        double[] values = new double[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getDouble();
+        }
+        Optimizer optimizer = create(type, values);
+        long step = buffer.getLong();
+        int slots = buffer.getInt();
+        if (slots == 0) {
+            return optimizer;
+        }
+        if (slots != optimizer.stateSlots()) {
+            throw new IOException("Nieprawidłowy stan optymalizatora: " + slots + " buforów");
+        }
+
+        optimizer.prepare(tensorSizes);
+        optimizer.step = step;
+        for (double[][] slot : optimizer.state) {
+            for (double[] tensor : slot) {
+                buffer.asDoubleBuffer().get(tensor);
+                buffer.position(buffer.position() + tensor.length * Double.BYTES);
+            }
+        }
+        return optimizer;
+    }
+
+    private static Optimizer create(int type, double[] values) throws IOException {
+        try {
+            switch (type) {
+                case SGD: return sgd();
+                case MOMENTUM: return momentum(values[0]);
+                case NESTEROV: return nesterov(values[0]);
+                case ADAM: return adam(values[0], values[1], values[2]);
+                case ADAMW: return adamW(values[0], values[1], values[2], values[3]);
+                default: throw new IOException("Nieznany typ optymalizatora: " + type);
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Nieprawidłowe parametry optymalizatora: " + Arrays.toString(values), e);
+        }
+    }
+
+    private static void checkRange(double value, String name) {
+        if (!(value >= 0.0 && value < 1.0)) {
+            throw new IllegalArgumentException(name + " musi być w przedziale [0, 1): " + value);
+        }
+    }
+
+    private static final class Sgd extends Optimizer {
+        Sgd() {
+            super(SGD);
+        }
+
+        @Override
+        int stateSlots() {
+            return 0;
+        }
+
+        @Override
+        void update(double[] parameters, double[] gradient, int from, int to,
+                    double gradientScale, double rate, int tensor) {
+            MatrixKernels.axpy(rate * gradientScale, gradient, from, parameters, from, to - from);
+        }
+
+        @Override
+        void update(float[] parameters, float[] gradient, int from, int to,
+                    double gradientScale, double rate, int tensor) {
+            MatrixKernels.axpy((float) (rate * gradientScale), gradient, from, parameters, from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return "SGD";
+        }
+    }
+
+    private static final class Momentum extends Optimizer {
+        private final double momentum;
+        private final boolean nesterov;
+
+        Momentum(int type, double momentum) {
+            super(type, momentum);
+            checkRange(momentum, "Momentum");
+            this.momentum = momentum;
+            this.nesterov = type == NESTEROV;
+        }
+
+        @Override
+        int stateSlots() {
+            return 1;
+        }
+
+        @Override
+        void update(double[] parameters, double[] gradient, int from, int to,
+                    double gradientScale, double rate, int tensor) {
+            double[] velocity = state[0][tensor];
+            for (int i = from; i < to; i++) {
+                double g = gradient[i] * gradientScale;
+                double v = momentum * velocity[i] + g;
+                velocity[i] = v;
+                parameters[i] += rate * (nesterov ? g + momentum * v : v);
+            }
+        }
+
+        @Override
+        void update(float[] parameters, float[] gradient, int from, int to,
+                    double gradientScale, double rate, int tensor) {
+            double[] velocity = state[0][tensor];
+            for (int i = from; i < to; i++) {
+                double g = gradient[i] * gradientScale;
+                double v = momentum * velocity[i] + g;
+                velocity[i] = v;
+                parameters[i] += (float) (rate * (nesterov ? g + momentum * v : v));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return (nesterov ? "Nesterov" : "Momentum") + "(momentum=" + momentum + ")";
+        }
+    }
+
+    private static final class Adam extends Optimizer {
+        private final double beta1;
+        private final double beta2;
+        private final double epsilon;
+        private final double weightDecay;
+        private final boolean decoupled;
+
+        Adam(int type, double beta1, double beta2, double epsilon, double weightDecay) {
+            super(type, type == ADAMW ? new double[] {beta1, beta2, epsilon, weightDecay}
+                                      : new double[] {beta1, beta2, epsilon});
+            checkRange(beta1, "Beta1");
+            checkRange(beta2, "Beta2");
+            if (!(epsilon > 0.0)) {
+                throw new IllegalArgumentException("Epsilon musi być dodatni: " + epsilon);
+            }
+            if (!(weightDecay >= 0.0)) {
+                throw new IllegalArgumentException("Współczynnik zaniku wag nie może być ujemny: " + weightDecay);
+            }
+            this.beta1 = beta1;
+            this.beta2 = beta2;
+            this.epsilon = epsilon;
+            this.weightDecay = weightDecay;
+            this.decoupled = type == ADAMW;
+        }
+
+        @Override
+        int stateSlots() {
+            return 2;
+        }
+
+        @Override
+        void update(double[] parameters, double[] gradient, int from, int to,
+                    double gradientScale, double rate, int tensor) {
+            double[] firstMoment = state[0][tensor];
+            double[] secondMoment = state[1][tensor];
+            double stepSize = rate / (1.0 - Math.pow(beta1, step));
+            double secondCorrection = 1.0 / (1.0 - Math.pow(beta2, step));
+            double decay = decoupled && tensor % 2 == 0 ? 1.0 - rate * weightDecay : 1.0;
+
+            for (int i = from; i < to; i++) {
+                double g = gradient[i] * gradientScale;
+                double m = beta1 * firstMoment[i] + (1.0 - beta1) * g;
+                double v = beta2 * secondMoment[i] + (1.0 - beta2) * g * g;
+                firstMoment[i] = m;
+                secondMoment[i] = v;
+                parameters[i] = parameters[i] * decay + stepSize * m / (Math.sqrt(v * secondCorrection) + epsilon);
+            }
+        }
+
+        @Override
+        void update(float[] parameters, float[] gradient, int from, int to,
+                    double gradientScale, double rate, int tensor) {
+            double[] firstMoment = state[0][tensor];
+            double[] secondMoment = state[1][tensor];
+            double stepSize = rate / (1.0 - Math.pow(beta1, step));
+            double secondCorrection = 1.0 / (1.0 - Math.pow(beta2, step));
+            double decay = decoupled && tensor % 2 == 0 ? 1.0 - rate * weightDecay : 1.0;
+
+            for (int i = from; i < to; i++) {
+                double g = gradient[i] * gradientScale;
+                double m = beta1 * firstMoment[i] + (1.0 - beta1) * g;
+                double v = beta2 * secondMoment[i] + (1.0 - beta2) * g * g;
+                firstMoment[i] = m;
+                secondMoment[i] = v;
+                parameters[i] = (float) (parameters[i] * decay + stepSize * m / (Math.sqrt(v * secondCorrection) + epsilon));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return (decoupled ? "AdamW" : "Adam") + "(beta1=" + beta1 + ", beta2=" + beta2 + ", epsilon=" + epsilon +
+                   (decoupled ? ", weightDecay=" + weightDecay : "") + ")";
+        }
+    }
+}
@@ -0,0 +1,4 @@
+public enum OutputHead {
+    LINEAR,
+    SOFTMAX
+}
@@ -0,0 +1,4 @@
+public enum Precision {
+    DOUBLE,
+    FLOAT
+}
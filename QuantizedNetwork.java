@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class QuantizedNetwork {
+    private static final int QUANTIZED_MAGIC = 0x38504C4D;
+    private static final int QUANTIZED_VERSION = 2;
+    private static final int LEVELS = 127;
+
+    private final int[] layerSizes;
+    private final Activation[] activations;
+    private final OutputHead outputHead;
+    private final float[] inputScales;
+    private final float[][] weightScales;
+    private final float[][] biases;
+    private final byte[][] weights;
+    private final float[][] outputScales;
+    private final ThreadLocal<Workspace> workspaces;
+    private int sourceChecksum;
+
+    private QuantizedNetwork(int[] layerSizes, Activation[] activations, OutputHead outputHead, float[] inputScales,
+                             float[][] weightScales, float[][] biases, byte[][] weights) {
+        this.layerSizes = layerSizes;
+        this.activations = activations;
+        this.outputHead = outputHead;
+        this.inputScales = inputScales;
+        this.weightScales = weightScales;
+        this.biases = biases;
+        this.weights = weights;
+        this.outputScales = new float[weights.length][];
+        for (int layer = 0; layer < weights.length; layer++) {
+            outputScales[layer] = new float[layerSizes[layer + 1]];
+            for (int j = 0; j < outputScales[layer].length; j++) {
+                outputScales[layer][j] = inputScales[layer] * weightScales[layer][j];
+            }
+        }
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(layerSizes));
+    }
+
+    static QuantizedNetwork quantize(int[] layerSizes, Activation[] activations, OutputHead outputHead,
+                                     double[][] weights, double[][] biases, List<Sample> calibrationSamples) {
+        if (calibrationSamples.isEmpty()) {
+            throw new IllegalArgumentException("Brak próbek do kalibracji kwantyzacji");
+        }
+        int numLayers = layerSizes.length - 1;
+        double[] ranges = calibrateRanges(layerSizes, activations, weights, biases, calibrationSamples);
+        float[] inputScales = new float[numLayers];
+        float[][] weightScales = new float[numLayers][];
+        float[][] quantizedBiases = new float[numLayers][];
+        byte[][] quantizedWeights = new byte[numLayers][];
+
+        for (int layer = 0; layer < numLayers; layer++) {
+            int fromSize = layerSizes[layer];
+            int toSize = layerSizes[layer + 1];
+            inputScales[layer] = (float) (ranges[layer] > 0.0 ? ranges[layer] / LEVELS : 1.0);
+            weightScales[layer] = new float[toSize];
+            quantizedBiases[layer] = new float[toSize];
+            quantizedWeights[layer] = new byte[fromSize * toSize];
+
+            for (int j = 0; j < toSize; j++) {
+                double max = 0.0;
+                for (int i = 0; i < fromSize; i++) {
+                    max = Math.max(max, Math.abs(weights[layer][i * toSize + j]));
+                }
+                weightScales[layer][j] = (float) (max > 0.0 ? max / LEVELS : 1.0);
+                quantizedBiases[layer][j] = (float) biases[layer][j];
+            }
+            for (int i = 0; i < fromSize; i++) {
+                for (int j = 0; j < toSize; j++) {
+                    quantizedWeights[layer][i * toSize + j] =
+                        (byte) quantize(weights[layer][i * toSize + j] / weightScales[layer][j]);
+                }
+            }
+        }
+
+        return new QuantizedNetwork(layerSizes.clone(), activations.clone(), outputHead, inputScales,
+                                    weightScales, quantizedBiases, quantizedWeights);
+    }
+
+    private static double[] calibrateRanges(int[] layerSizes, Activation[] activations, double[][] weights,
+                                            double[][] biases, List<Sample> calibrationSamples) {
+        int numLayers = layerSizes.length - 1;
+        double[] ranges = new double[numLayers];
+        double[][] values = new double[layerSizes.length][];
+        for (int layer = 0; layer < layerSizes.length; layer++) {
+            values[layer] = new double[layerSizes[layer]];
+        }
+
+        for (Sample sample : calibrationSamples) {
+            sample.copyInput(values[0], 0);
+            for (int layer = 0; layer < numLayers; layer++) {
+                int toSize = layerSizes[layer + 1];
+                double[] input = values[layer];
+                double[] output = values[layer + 1];
+                for (double value : input) {
+                    ranges[layer] = Math.max(ranges[layer], Math.abs(value));
+                }
+                System.arraycopy(biases[layer], 0, output, 0, toSize);
+                for (int i = 0; i < input.length; i++) {
+                    if (input[i] != 0.0) {
+                        MatrixKernels.axpy(input[i], weights[layer], i * toSize, output, 0, toSize);
+                    }
+                }
+                activations[layer].apply(output, 0, toSize);
+            }
+        }
+        return ranges;
+    }
+
+    private static int quantize(double value) {
+        long rounded = Math.round(value);
+        return (int) Math.max(-LEVELS, Math.min(LEVELS, rounded));
+    }
+
+    public double[] predict(double[] input) {
+        double[] output = new double[layerSizes[layerSizes.length - 1]];
+        predict(input, output);
+        return output;
+    }
+
+    public void predict(double[] input, double[] output) {
+        if (input.length != layerSizes[0]) {
+            throw new IllegalArgumentException("Nieprawidłowy rozmiar danych wejściowych: " +
+                                               input.length + " (oczekiwano " + layerSizes[0] + ")");
+        }
+        Workspace workspace = workspaces.get();
+        int numLayers = layerSizes.length - 1;
+        float[] values = workspace.values;
+        byte[] quantized = workspace.quantized;
+        int[] accumulators = workspace.accumulators;
+
+        float inverseScale = 1.0f / inputScales[0];
+        for (int i = 0; i < input.length; i++) {
+            quantized[i] = (byte) quantize(input[i] * inverseScale);
+        }
+
+        for (int layer = 0; layer < numLayers; layer++) {
+            int fromSize = layerSizes[layer];
+            int toSize = layerSizes[layer + 1];
+            byte[] layerWeights = weights[layer];
+            Arrays.fill(accumulators, 0, toSize, 0);
+
+            for (int i = 0; i < fromSize; i++) {
+                if (quantized[i] != 0) {
+                    MatrixKernels.axpy(quantized[i], layerWeights, i * toSize, accumulators, 0, toSize);
+                }
+            }
+
+            float[] scales = outputScales[layer];
+            float[] layerBiases = biases[layer];
+            for (int j = 0; j < toSize; j++) {
+                values[j] = accumulators[j] * scales[j] + layerBiases[j];
+            }
+            activations[layer].apply(values, 0, toSize);
+
+            if (layer < numLayers - 1) {
+                inverseScale = 1.0f / inputScales[layer + 1];
+                for (int j = 0; j < toSize; j++) {
+                    quantized[j] = (byte) quantize(values[j] * inverseScale);
+                }
+            }
+        }
+
+        int outputSize = layerSizes[numLayers];
+        if (outputHead == OutputHead.SOFTMAX) {
+            MatrixKernels.softmax(values, 0, outputSize);
+        }
+        for (int k = 0; k < outputSize; k++) {
+            output[k] = values[k];
+        }
+    }
+
+    public double[][] predictBatch(double[][] inputs) {
+        double[][] outputs = new double[inputs.length][layerSizes[layerSizes.length - 1]];
+        predictBatch(inputs, outputs);
+        return outputs;
+    }
+
+    public void predictBatch(double[][] inputs, double[][] outputs) {
+        if (outputs.length < inputs.length) {
+            throw new IllegalArgumentException("Za mało miejsca na wyniki: " + outputs.length +
+                                               " (oczekiwano " + inputs.length + ")");
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            predict(inputs[i], outputs[i]);
+        }
+    }
+
+    public long getWeightBytes() {
+        long total = 0;
+        for (int layer = 0; layer < weights.length; layer++) {
+            total += weights[layer].length + (long) (weightScales[layer].length + biases[layer].length) * Float.BYTES;
+        }
+        return total;
+    }
+
+    public String getArchitectureString() {
+        StringBuilder architecture = new StringBuilder().append(layerSizes[0]);
+        for (int layer = 0; layer < activations.length - 1; layer++) {
+            architecture.append(" → ").append(layerSizes[layer + 1]).append(' ').append(activations[layer]);
+        }
+        return architecture.append(" → ").append(layerSizes[layerSizes.length - 1]).append(' ').append(outputHead)
+                           .append(" (int8)").toString();
+    }
+
+    public int getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    public void setSourceChecksum(int sourceChecksum) {
+        this.sourceChecksum = sourceChecksum;
+    }
+
+    public void save(String path) throws IOException {
+        int numLayers = layerSizes.length - 1;
+        long size = (5 + 2 * layerSizes.length) * Integer.BYTES + numLayers * Float.BYTES + Integer.BYTES;
+        for (int layer = 0; layer < numLayers; layer++) {
+            size += weights[layer].length + 2L * layerSizes[layer + 1] * Float.BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(QUANTIZED_MAGIC);
+        buffer.putInt(QUANTIZED_VERSION);
+        buffer.putInt(sourceChecksum);
+        buffer.putInt(layerSizes.length);
+        for (int layerSize : layerSizes) {
+            buffer.putInt(layerSize);
+        }
+        for (Activation activation : activations) {
+            buffer.putInt(activation.ordinal());
+        }
+        buffer.putInt(outputHead.ordinal());
+        for (int layer = 0; layer < numLayers; layer++) {
+            buffer.putFloat(inputScales[layer]);
+            buffer.asFloatBuffer().put(weightScales[layer]).put(biases[layer]);
+            buffer.position(buffer.position() + 2 * layerSizes[layer + 1] * Float.BYTES);
+            buffer.put(weights[layer]);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+
+        AtomicFiles.write(path, buffer);
+    }
+
+    public static QuantizedNetwork load(String path) throws IOException {
+        Path file = Paths.get(path);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            int contentSize = buffer.limit() - Integer.BYTES;
+            if (contentSize < 4 * Integer.BYTES || buffer.getInt(0) != QUANTIZED_MAGIC) {
+                throw new IOException("To nie jest plik skwantyzowanego modelu: " + path);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().limit(contentSize));
+            if ((int) checksum.getValue() != buffer.getInt(contentSize)) {
+                throw new IOException("Nieprawidłowa suma kontrolna pliku modelu: " + path);
+            }
+            buffer.limit(contentSize);
+
+            try {
+                buffer.getInt();
+                int version = buffer.getInt();
+                if (version != QUANTIZED_VERSION) {
+                    throw new IOException("Nieobsługiwana wersja formatu modelu: " + version);
+                }
+                int source = buffer.getInt();
+                int layerCount = buffer.getInt();
+                if (layerCount < 2 || (long) layerCount * 2 * Integer.BYTES > contentSize) {
+                    throw new IOException("Nieobsługiwana liczba warstw: " + layerCount);
+                }
+                int[] sizes = new int[layerCount];
+                for (int i = 0; i < sizes.length; i++) {
+                    sizes[i] = buffer.getInt();
+                    if (sizes[i] <= 0) {
+                        throw new IOException("Nieprawidłowy rozmiar warstwy: " + sizes[i]);
+                    }
+                }
+                int numLayers = layerCount - 1;
+                Activation[] layerActivations = new Activation[numLayers];
+                for (int layer = 0; layer < numLayers; layer++) {
+                    int activation = buffer.getInt();
+                    if (activation < 0 || activation >= Activation.values().length) {
+                        throw new IOException("Nieznana funkcja aktywacji: " + activation);
+                    }
+                    layerActivations[layer] = Activation.values()[activation];
+                }
+                int head = buffer.getInt();
+                if (head < 0 || head >= OutputHead.values().length) {
+                    throw new IOException("Nieznany typ warstwy wyjściowej: " + head);
+                }
+
+                float[] inputScales = new float[numLayers];
+                float[][] weightScales = new float[numLayers][];
+                float[][] biases = new float[numLayers][];
+                byte[][] weights = new byte[numLayers][];
+                for (int layer = 0; layer < numLayers; layer++) {
+                    if ((long) sizes[layer] * sizes[layer + 1] > buffer.remaining()) {
+                        throw new IOException("Rozmiar pliku modelu nie zgadza się z nagłówkiem: " + path);
+                    }
+                    inputScales[layer] = buffer.getFloat();
+                    weightScales[layer] = new float[sizes[layer + 1]];
+                    biases[layer] = new float[sizes[layer + 1]];
+                    weights[layer] = new byte[sizes[layer] * sizes[layer + 1]];
+                    buffer.asFloatBuffer().get(weightScales[layer]).get(biases[layer]);
+                    buffer.position(buffer.position() + 2 * sizes[layer + 1] * Float.BYTES);
+                    buffer.get(weights[layer]);
+                }
+                if (buffer.hasRemaining()) {
+                    throw new IOException("Rozmiar pliku modelu nie zgadza się z nagłówkiem: " + path);
+                }
+                QuantizedNetwork network = new QuantizedNetwork(sizes, layerActivations, OutputHead.values()[head],
+                                                                inputScales, weightScales, biases, weights);
+                network.sourceChecksum = source;
+                return network;
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Rozmiar pliku modelu nie zgadza się z nagłówkiem: " + path, e);
+            }
+        }
+    }
+
+    private static final class Workspace {
+        final float[] values;
+        final byte[] quantized;
+        final int[] accumulators;
+
+        Workspace(int[] layerSizes) {
+            int maxLayerSize = Arrays.stream(layerSizes).max().orElse(0);
+            values = new float[maxLayerSize];
+            quantized = new byte[maxLayerSize];
+            accumulators = new int[maxLayerSize];
+        }
+    }
+}
@@ -13,6 +13,10 @@ public class RecognizerApp extends JFrame {
     private static final int PIXEL_SIZE = 28;
     private static final int INTERNAL_PIXEL_SIZE = 56;
     private static final String MODEL_PATH = "model.dat";
+    private static final String QUANTIZED_MODEL_PATH = "model.q8";
+    private static final String AUGMENTATION_CACHE_PATH = "augmentation.cache";
+    private static final int AUGMENTATION_CACHE_VARIANTS = 50;
+    private static final int EVALUATION_BLOCK = 64;
     private static final String DATA_DIR = "data";
     private static final String TEST_DATA_DIR = "test_data";
     private static final char[] LETTERS = {'M', 'O', 'N'};
@@ -27,6 +31,7 @@ public class RecognizerApp extends JFrame {
     private JTextArea testAccuracyTextArea;
     private JButton recognizeButton, clearButton, addToTrainingButton, addToTestingButton, stopTrainingButton;
     private NeuralNetwork neuralNetwork;
+    private QuantizedNetwork quantizedNetwork;
     private JRadioButton radioM, radioO, radioN;
     private ButtonGroup letterGroup;
     private volatile boolean trainingInProgress = false;
@@ -197,10 +202,18 @@ public class RecognizerApp extends JFrame {
                 configureNetworkForTraining(neuralNetwork);
                 List<Sample> balancedSamples = balanceSamples(samples);
                 
+                try {
+                    neuralNetwork.setAugmentationCache(AugmentationCache.open(
+                        Paths.get(AUGMENTATION_CACHE_PATH), balancedSamples, AUGMENTATION_CACHE_VARIANTS));
+                } catch (IOException e) {
+                    appendToConsole("Nie udało się przygotować pamięci podręcznej augmentacji: " + e.getMessage());
+                }
+                
                 trainWithStopCheck(balancedSamples);
                 
                 try {
                     neuralNetwork.saveModel(MODEL_PATH);
+                    saveQuantizedModel(balancedSamples);
                     
                     if (!stopTrainingRequested) {
                         appendToConsole("Model został zapisany do " + MODEL_PATH);
@@ -301,6 +314,7 @@ public class RecognizerApp extends JFrame {
         net.setPatience(25);
         net.setValidationSplit(0.2);
         net.setDropoutRate(0.0);
+        net.setOutputHead(OutputHead.SOFTMAX);
         net.setInitialLearningRate(0.0001);  
         net.setPeakLearningRate(0.003);
         net.setWarmupEpochs(15);
@@ -497,6 +511,7 @@ public class RecognizerApp extends JFrame {
         try {
             neuralNetwork = new NeuralNetwork();
             neuralNetwork.loadModel(MODEL_PATH);
+            loadQuantizedNetwork();
             return true;
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, 
@@ -508,6 +523,33 @@ public class RecognizerApp extends JFrame {
         }
     }
 
+    private void loadQuantizedNetwork() {
+        if (!new File(QUANTIZED_MODEL_PATH).exists()) {
+            return;
+        }
+        try {
+            QuantizedNetwork network = QuantizedNetwork.load(QUANTIZED_MODEL_PATH);
+            if (network.getSourceChecksum() != NeuralNetwork.checksumOf(MODEL_PATH)) {
+                System.err.println("Model int8 nie pasuje do " + MODEL_PATH + ", używany jest model pełnej precyzji");
+                return;
+            }
+            quantizedNetwork = network;
+        } catch (IOException e) {
+            System.err.println("Nie udało się wczytać modelu int8, używany jest model pełnej precyzji: " + e.getMessage());
+        }
+    }
+
+    private void saveQuantizedModel(List<Sample> calibrationSamples) {
+        try {
+            QuantizedNetwork network = neuralNetwork.quantize(calibrationSamples);
+            network.setSourceChecksum(NeuralNetwork.checksumOf(MODEL_PATH));
+            network.save(QUANTIZED_MODEL_PATH);
+            appendToConsole("Model int8 został zapisany do " + QUANTIZED_MODEL_PATH);
+        } catch (IOException | IllegalStateException e) {
+            appendToConsole("Nie udało się zapisać modelu int8: " + e.getMessage());
+        }
+    }
+
     private void recognizeDrawing() {
         if (neuralNetwork == null) {
             resultLabel.setText("Błąd: model nie jest załadowany");
@@ -516,7 +558,8 @@ public class RecognizerApp extends JFrame {
 
         try {
             double[] imageData = ImageProcessor.centerImage(drawingPanel.getBinarizedImage());
-            double[] rawOutputs = neuralNetwork.predict(imageData);
+            double[] rawOutputs = quantizedNetwork != null ? quantizedNetwork.predict(imageData)
+                                                           : neuralNetwork.predict(imageData);
             int maxIndex = findMaxIndex(rawOutputs);
             char recognizedLetter = LETTERS[maxIndex];
             
@@ -649,14 +692,28 @@ public class RecognizerApp extends JFrame {
         int[] correctPredictions = new int[LETTERS.length];
         int[] totalSamples = new int[LETTERS.length];
         
-        for (Sample sample : samples) {
-            double[] prediction = neuralNetwork.predict(sample.getInput());
-            int predictedIndex = findMaxIndex(prediction);
-            int targetIndex = findMaxIndex(sample.getTarget());
+        double[][] inputs = new double[Math.min(EVALUATION_BLOCK, samples.size())][samples.get(0).getInputSize()];
+        double[][] predictions = new double[inputs.length][LETTERS.length];
+        for (int start = 0; start < samples.size(); start += inputs.length) {
+            int rows = Math.min(inputs.length, samples.size() - start);
+            double[][] block = rows == inputs.length ? inputs : Arrays.copyOf(inputs, rows);
+            for (int row = 0; row < rows; row++) {
+                samples.get(start + row).copyInput(block[row], 0);
+            }
+            if (quantizedNetwork != null) {
+                quantizedNetwork.predictBatch(block, predictions);
+            } else {
+                neuralNetwork.predictBatch(block, predictions);
+            }
             
-            totalSamples[targetIndex]++;
-            if (predictedIndex == targetIndex) {
-                correctPredictions[targetIndex]++;
+            for (int row = 0; row < rows; row++) {
+                int predictedIndex = findMaxIndex(predictions[row]);
+                int targetIndex = findMaxIndex(samples.get(start + row).getTarget());
+                
+                totalSamples[targetIndex]++;
+                if (predictedIndex == targetIndex) {
+                    correctPredictions[targetIndex]++;
+                }
             }
         }
         
@@ -680,60 +737,7 @@ public class RecognizerApp extends JFrame {
     }
 
     private List<Sample> loadSamples(String dirPath) {
-        List<Sample> samples = new ArrayList<>();
-        File dataDir = new File(dirPath);
-        
-        if (!dataDir.exists() || !dataDir.isDirectory()) {
-            return samples;
-        }
-        
-        File[] files = dataDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".csv"));
-        
-        if (files == null || files.length == 0) {
-            return samples;
-        }
-        
-        Pattern pattern = Pattern.compile("([MON])_(\\d+)\\.csv");
-        
-        for (File file : files) {
-            try {
-                Matcher matcher = pattern.matcher(file.getName());
-                if (!matcher.matches()) {
-                    continue;
-                }
-                
-                char letter = matcher.group(1).charAt(0);
-                double[] target = new double[3];
-                switch (letter) {
-                    case 'M': target[0] = 1.0; break;
-                    case 'O': target[1] = 1.0; break;
-                    case 'N': target[2] = 1.0; break;
-                    default: continue;
-                }
-                
-                double[] input = parseCsvFile(file);
-                if (input.length != 784) continue;
-                
-                samples.add(new Sample(input, target));
-                
-            } catch (Exception e) {
-
-            }
-        }
-        
-        return samples;
-    }
-    
-    private double[] parseCsvFile(File file) throws IOException {
-        String content = new String(Files.readAllBytes(file.toPath()));
-        String[] values = content.trim().split(",");
-        double[] input = new double[values.length];
-        
-        for (int i = 0; i < values.length; i++) {
-            input[i] = Double.parseDouble(values[i]);
-        }
-        
-        return input;
+        return MyDataLoader.loadSamplesFromDir(dirPath);
     }
 
     private class DrawingPanel extends JPanel {
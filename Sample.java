@@ -1,22 +1,175 @@
+import java.util.Arrays;
+
 public class Sample {
     private double[] input;
     private double[] target;
+    private long[] bits;
+    private int inputSize;
+    private byte label;
+    private byte classes;
 
     public Sample(double[] input, double[] target) {
         this.input = input;
         this.target = target;
+        this.inputSize = input.length;
+    }
+
+    private Sample(long[] bits, int inputSize, double[] target) {
+        this.bits = bits;
+        this.inputSize = inputSize;
+        this.target = target;
+        int label = labelOf(target);
+        if (label >= 0) {
+            this.target = null;
+            this.label = (byte) label;
+            this.classes = (byte) target.length;
+        }
+    }
+
+    public static Sample packed(double[] input, double[] target) {
+        long[] bits = new long[(input.length + Long.SIZE - 1) / Long.SIZE];
+        for (int i = 0; i < input.length; i++) {
+            if (input[i] == 1.0) {
+                bits[i >>> 6] |= 1L << i;
+            } else if (input[i] != 0.0) {
+                return new Sample(input, target);
+            }
+        }
+        return new Sample(bits, input.length, target);
+    }
+
+    static Sample fromBits(long[] bits, int inputSize, int label, int classes) {
+        if (bits.length != (inputSize + Long.SIZE - 1) / Long.SIZE) {
+            throw new IllegalArgumentException("Liczba słów " + bits.length + " nie pasuje do rozmiaru wejścia " +
+                                               inputSize);
+        }
+        if (label < 0 || label >= classes || classes > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Nieprawidłowa etykieta " + label + " dla " + classes + " klas");
+        }
+        Sample sample = new Sample(bits, inputSize, null);
+        sample.label = (byte) label;
+        sample.classes = (byte) classes;
+        return sample;
+    }
+
+    private static int labelOf(double[] target) {
+        if (target == null || target.length > Byte.MAX_VALUE) {
+            return -1;
+        }
+        int label = -1;
+        for (int k = 0; k < target.length; k++) {
+            if (target[k] == 1.0) {
+                if (label >= 0) {
+                    return -1;
+                }
+                label = k;
+            } else if (target[k] != 0.0) {
+                return -1;
+            }
+        }
+        return label;
+    }
+
+    public boolean isPacked() {
+        return bits != null;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getLabel() {
+        return isLabelOnly() ? label : labelOf(target);
     }
 
     public double[] getInput() {
-        return input;
+        if (bits == null) {
+            return input;
+        }
+        return copyInput(new double[inputSize], 0);
+    }
+
+    public double[] copyInput(double[] destination, int offset) {
+        if (bits == null) {
+            System.arraycopy(input, 0, destination, offset, inputSize);
+            return destination;
+        }
+        Arrays.fill(destination, offset, offset + inputSize, 0.0);
+        for (int word = 0; word < bits.length; word++) {
+            long value = bits[word];
+            while (value != 0) {
+                destination[offset + (word << 6) + Long.numberOfTrailingZeros(value)] = 1.0;
+                value &= value - 1;
+            }
+        }
+        return destination;
+    }
+
+    public int countActiveInputs() {
+        if (bits == null) {
+            int count = 0;
+            for (double value : input) {
+                if (value != 0.0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public int activeInputs(int[] indices, int offset) {
+        int count = offset;
+        if (bits == null) {
+            for (int i = 0; i < inputSize; i++) {
+                if (input[i] != 0.0) {
+                    indices[count++] = i;
+                }
+            }
+            return count - offset;
+        }
+        for (int word = 0; word < bits.length; word++) {
+            long value = bits[word];
+            while (value != 0) {
+                indices[count++] = (word << 6) + Long.numberOfTrailingZeros(value);
+                value &= value - 1;
+            }
+        }
+        return count - offset;
     }
 
     public void setInput(double[] input) {
+        if (isLabelOnly()) {
+            this.target = getTarget();
+        }
         this.input = input;
+        this.inputSize = input.length;
+        this.bits = null;
+    }
+
+    private boolean isLabelOnly() {
+        return bits != null && target == null;
     }
 
     public double[] getTarget() {
-        return target;
+        if (!isLabelOnly()) {
+            return target;
+        }
+        return copyTarget(new double[classes], 0);
+    }
+
+    public double[] copyTarget(double[] destination, int offset) {
+        if (!isLabelOnly()) {
+            System.arraycopy(target, 0, destination, offset, target.length);
+            return destination;
+        }
+        Arrays.fill(destination, offset, offset + classes, 0.0);
+        destination[offset + label] = 1.0;
+        return destination;
     }
 
     public void setTarget(double[] target) {
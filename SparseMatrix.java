@@ -0,0 +1,152 @@
+public class SparseMatrix {
+    private final int rows;
+    private final int columns;
+    private final int[] rowStarts;
+    private final int[] columnIndices;
+    private final double[] values;
+    private final float[] values32;
+
+    private SparseMatrix(int rows, int columns, int[] rowStarts, int[] columnIndices, double[] values,
+                         float[] values32) {
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStarts = rowStarts;
+        this.columnIndices = columnIndices;
+        this.values = values;
+        this.values32 = values32;
+    }
+
+    public static SparseMatrix compress(double[] dense, int rows, int columns) {
+        if (dense.length != rows * columns) {
+            throw new IllegalArgumentException("Rozmiar macierzy " + dense.length + " nie odpowiada wymiarom " +
+                                               rows + "×" + columns);
+        }
+        int[] rowStarts = new int[rows + 1];
+        int nonZeros = countNonZeros(dense);
+        int[] columnIndices = new int[nonZeros];
+        double[] values = new double[nonZeros];
+
+        int next = 0;
+        for (int row = 0; row < rows; row++) {
+            int offset = row * columns;
+            for (int column = 0; column < columns; column++) {
+                double value = dense[offset + column];
+                if (value != 0.0) {
+                    columnIndices[next] = column;
+                    values[next++] = value;
+                }
+            }
+            rowStarts[row + 1] = next;
+        }
+        return new SparseMatrix(rows, columns, rowStarts, columnIndices, values, null);
+    }
+
+    public static SparseMatrix compress(float[] dense, int rows, int columns) {
+        if (dense.length != rows * columns) {
+            throw new IllegalArgumentException("Rozmiar macierzy " + dense.length + " nie odpowiada wymiarom " +
+                                               rows + "×" + columns);
+        }
+        int[] rowStarts = new int[rows + 1];
+        int nonZeros = countNonZeros(dense);
+        int[] columnIndices = new int[nonZeros];
+        float[] values = new float[nonZeros];
+
+        int next = 0;
+        for (int row = 0; row < rows; row++) {
+            int offset = row * columns;
+            for (int column = 0; column < columns; column++) {
+                float value = dense[offset + column];
+                if (value != 0.0f) {
+                    columnIndices[next] = column;
+                    values[next++] = value;
+                }
+            }
+            rowStarts[row + 1] = next;
+        }
+        return new SparseMatrix(rows, columns, rowStarts, columnIndices, null, values);
+    }
+
+    public static int countNonZeros(double[] dense) {
+        int count = 0;
+        for (double value : dense) {
+            if (value != 0.0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static int countNonZeros(float[] dense) {
+        int count = 0;
+        for (float value : dense) {
+            if (value != 0.0f) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getNonZeros() {
+        return columnIndices.length;
+    }
+
+    public double getDensity() {
+        return (double) columnIndices.length / ((long) rows * columns);
+    }
+
+    public void multiplyAccumulate(double[] x, int xOffset, double[] y, int yOffset) {
+        for (int row = 0; row < rows; row++) {
+            double scale = x[xOffset + row];
+            if (scale == 0.0) {
+                continue;
+            }
+            for (int k = rowStarts[row]; k < rowStarts[row + 1]; k++) {
+                y[yOffset + columnIndices[k]] += scale * values[k];
+            }
+        }
+    }
+
+    public void multiplyAccumulate(double[] x, double[] y, int count) {
+        for (int i = 0; i < count; i++) {
+            multiplyAccumulate(x, i * rows, y, i * columns);
+        }
+    }
+
+    public void multiplyAccumulate(double[] x, int xOffset, float[] y, int yOffset) {
+        for (int row = 0; row < rows; row++) {
+            float scale = (float) x[xOffset + row];
+            if (scale == 0.0f) {
+                continue;
+            }
+            for (int k = rowStarts[row]; k < rowStarts[row + 1]; k++) {
+                y[yOffset + columnIndices[k]] += scale * values32[k];
+            }
+        }
+    }
+
+    public void multiplyAccumulate(float[] x, int xOffset, float[] y, int yOffset) {
+        for (int row = 0; row < rows; row++) {
+            float scale = x[xOffset + row];
+            if (scale == 0.0f) {
+                continue;
+            }
+            for (int k = rowStarts[row]; k < rowStarts[row + 1]; k++) {
+                y[yOffset + columnIndices[k]] += scale * values32[k];
+            }
+        }
+    }
+
+    public void multiplyAccumulate(float[] x, float[] y, int count) {
+        for (int i = 0; i < count; i++) {
+            multiplyAccumulate(x, i * rows, y, i * columns);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+public final class VectorKernels implements KernelBackend {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES =
+        VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(Long.SIZE, INTS.length() * Byte.SIZE)));
+    private static final int BYTE_PARTS = BYTES.length() / INTS.length();
+
+    @Override
+    public String name() {
+        return "Vector API (" + DOUBLES.vectorBitSize() + " bit)";
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        int step = DOUBLES.length();
+        DoubleVector sum0 = DoubleVector.zero(DOUBLES);
+        DoubleVector sum1 = DoubleVector.zero(DOUBLES);
+        int i = 0;
+
+        for (; i + 2 * step <= length; i += 2 * step) {
+            sum0 = DoubleVector.fromArray(DOUBLES, a, aOffset + i)
+                               .fma(DoubleVector.fromArray(DOUBLES, b, bOffset + i), sum0);
+            sum1 = DoubleVector.fromArray(DOUBLES, a, aOffset + i + step)
+                               .fma(DoubleVector.fromArray(DOUBLES, b, bOffset + i + step), sum1);
+        }
+        for (; i + step <= length; i += step) {
+            sum0 = DoubleVector.fromArray(DOUBLES, a, aOffset + i)
+                               .fma(DoubleVector.fromArray(DOUBLES, b, bOffset + i), sum0);
+        }
+
+        double sum = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        int step = FLOATS.length();
+        FloatVector sum0 = FloatVector.zero(FLOATS);
+        FloatVector sum1 = FloatVector.zero(FLOATS);
+        int i = 0;
+
+        for (; i + 2 * step <= length; i += 2 * step) {
+            sum0 = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                              .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), sum0);
+            sum1 = FloatVector.fromArray(FLOATS, a, aOffset + i + step)
+                              .fma(FloatVector.fromArray(FLOATS, b, bOffset + i + step), sum1);
+        }
+        for (; i + step <= length; i += step) {
+            sum0 = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                              .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), sum0);
+        }
+
+        float sum = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        DoubleVector scale = DoubleVector.broadcast(DOUBLES, alpha);
+        int bound = DOUBLES.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, x, xOffset + i)
+                        .fma(scale, DoubleVector.fromArray(DOUBLES, y, yOffset + i))
+                        .intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        FloatVector scale = FloatVector.broadcast(FLOATS, alpha);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, x, xOffset + i)
+                       .fma(scale, FloatVector.fromArray(FLOATS, y, yOffset + i))
+                       .intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void axpy(int alpha, byte[] x, int xOffset, int[] y, int yOffset, int length) {
+        IntVector scale = IntVector.broadcast(INTS, alpha);
+        int bound = BYTES.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += BYTES.length()) {
+            ByteVector bytes = ByteVector.fromArray(BYTES, x, xOffset + i);
+            for (int part = 0; part < BYTE_PARTS; part++) {
+                int index = yOffset + i + part * INTS.length();
+                IntVector widened = (IntVector) bytes.convertShape(VectorOperators.B2I, INTS, part);
+                widened.mul(scale).add(IntVector.fromArray(INTS, y, index)).intoArray(y, index);
+            }
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void sigmoid(double[] values, int offset, int length) {
+        DoubleVector one = DoubleVector.broadcast(DOUBLES, 1.0);
+        int bound = DOUBLES.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += DOUBLES.length()) {
+            DoubleVector v = DoubleVector.fromArray(DOUBLES, values, offset + i);
+            one.div(v.neg().lanewise(VectorOperators.EXP).add(one)).intoArray(values, offset + i);
+        }
+        for (; i < length; i++) {
+            values[offset + i] = 1.0 / (1.0 + Math.exp(-values[offset + i]));
+        }
+    }
+
+    @Override
+    public void sigmoid(float[] values, int offset, int length) {
+        FloatVector one = FloatVector.broadcast(FLOATS, 1.0f);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector v = FloatVector.fromArray(FLOATS, values, offset + i);
+            one.div(v.neg().lanewise(VectorOperators.EXP).add(one)).intoArray(values, offset + i);
+        }
+        for (; i < length; i++) {
+            values[offset + i] = (float)(1.0 / (1.0 + Math.exp(-values[offset + i])));
+        }
+    }
+}